@@ -1,35 +1,142 @@
 package com.example.demo;
 
-import com.example.demo.domain.Post;
-import com.example.demo.repository.PostRepository;
+import com.example.demo.config.SeedProperties;
+import jakarta.persistence.EntityManagerFactory;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
-import java.util.stream.Stream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Seeds the posts when the posts table is empty, from a couple of posts for a demo to millions for a capacity test,
+ * see {@link SeedProperties}.
+ * <p>
+ * The posts are inserted in chunks, one transaction per chunk, by a few threads. A chunk is inserted through a
+ * stateless session, the posts are written in JDBC batches and never held in a persistence context, and the audit
+ * fields are the generated ones instead of the current time and user. Nothing is read back.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class DataInitializer implements ApplicationRunner {
-    
-    private final PostRepository posts;
-    
+
+    // how often the progress is logged
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final SeedProperties seed;
+
     @Override
     public void run(ApplicationArguments args) throws Exception {
+        if (!this.seed.isEnabled()) {
+            log.info(" data initializing is disabled");
+            return;
+        }
         this.initPosts();
     }
-    
-    private void initPosts() {
-        log.info(" start data initializing...");
-        this.posts.deleteAll();
-        Stream.of("Post one", "Post two").forEach(
-                title -> this.posts.save(Post.builder().title(title).content("content of " + title).build())
-        );
+
+    private void initPosts() throws InterruptedException {
+        var sessionFactory = this.entityManagerFactory.unwrap(SessionFactory.class);
+        boolean empty = sessionFactory.fromStatelessSession(session -> session
+                .createSelectionQuery("select p.id from Post p", Long.class)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty());
+        if (!empty) {
+            log.info(" posts exist, skipped data initializing");
+            return;
+        }
+
+        long total = this.seed.getPosts();
+        int chunkSize = Math.max(1, this.seed.getChunkSize());
+        long chunks = (total + chunkSize - 1) / chunkSize;
+        int threads = (int) Math.max(1, Math.min(this.seed.getThreads(), chunks));
+        log.info(" start data initializing, {} posts in chunks of {} on {} threads...", total, chunkSize, threads);
+
+        var generator = new PostGenerator(this.seed, LocalDateTime.now());
+        var progress = new Progress(total);
+        var nextChunk = new AtomicLong();
+        var failed = new AtomicBoolean();
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(() -> {
+                long chunk;
+                while (!failed.get() && (chunk = nextChunk.getAndIncrement()) < chunks) {
+                    int size = (int) Math.min(chunkSize, total - chunk * chunkSize);
+                    // a random per chunk, the same posts are generated for the same settings
+                    var random = new SplittableRandom(chunk);
+                    try {
+                        sessionFactory.inStatelessTransaction(session -> {
+                            for (int p = 0; p < size; p++) {
+                                session.insert(generator.next(random));
+                            }
+                        });
+                    } catch (RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                    progress.add(size);
+                }
+                return null;
+            });
+        }
+
+        var executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("data-initializer-"));
+        try {
+            for (var result : executor.invokeAll(workers)) {
+                result.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to initialize the posts", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        progress.log();
         log.info(" done data initialization...");
-        log.info(" initialized data::");
-        this.posts.findAll().forEach(p -> log.info(p.toString()));
     }
-}
\ No newline at end of file
+
+    private static class Progress {
+
+        private final long total;
+
+        private final long start = System.nanoTime();
+
+        private final AtomicLong written = new AtomicLong();
+
+        private final AtomicLong lastLogged = new AtomicLong(this.start);
+
+        Progress(long total) {
+            this.total = total;
+        }
+
+        void add(long posts) {
+            this.written.addAndGet(posts);
+            long last = this.lastLogged.get();
+            long now = System.nanoTime();
+            if (now - last >= PROGRESS_INTERVAL && this.lastLogged.compareAndSet(last, now)) {
+                log();
+            }
+        }
+
+        void log() {
+            long written = this.written.get();
+            long elapsed = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.start));
+            log.info(" initialized {} of {} posts, {} posts/s", written, this.total, written * 1000 / elapsed);
+        }
+    }
+}
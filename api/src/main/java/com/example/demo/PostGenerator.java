@@ -0,0 +1,90 @@
+package com.example.demo;
+
+import com.example.demo.config.SeedProperties;
+import com.example.demo.domain.Post;
+import com.example.demo.domain.Username;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.SplittableRandom;
+
+/**
+ * Generates posts looking like real ones for the seeding, see {@link DataInitializer}.
+ * <p>
+ * The content lengths are spread on a log scale, so there are many short posts and a few long ones, a few authors
+ * write most of the posts, the creation dates are spread over the seeded period and about a third of the posts are
+ * modified after their creation. A generator is shared by the seeding threads, each with its own random.
+ */
+class PostGenerator {
+
+    private static final String[] WORDS = ("""
+            spring security token issuer audience scope claim key signature resource server client request response
+            cache index query page cursor post comment author title content draft review release version change event
+            feed stream replica primary database table column row batch chunk retry timeout latency throughput
+            memory thread pool connection transaction lock commit rollback schema migration startup profile metric
+            the a an of to in on for with from by about after before over under between through during without
+            is are was were be been has have had will would can could should may might must does did make makes
+            fast slow small large new old first last next simple clear better quick careful useful common rare
+            """).trim().split("\\s+");
+
+    private final SeedProperties properties;
+
+    private final LocalDateTime now;
+
+    PostGenerator(SeedProperties properties, LocalDateTime now) {
+        this.properties = properties;
+        this.now = now;
+    }
+
+    Post next(SplittableRandom random) {
+        var post = Post.builder()
+                .title(title(random))
+                .content(content(random))
+                .build();
+
+        // skewed to the first authors
+        var author = new Username("user" + (int) (this.properties.getAuthors() * Math.pow(random.nextDouble(), 2)));
+        long periodSeconds = Math.max(1, this.properties.getPeriod().toSeconds());
+        long age = random.nextLong(periodSeconds);
+        var created = this.now.minusSeconds(age).truncatedTo(ChronoUnit.MILLIS);
+        post.setCreatedBy(author);
+        post.setCreatedDate(created);
+        post.setLastModifiedBy(author);
+        post.setLastModifiedDate(age > 0 && random.nextInt(3) == 0 ? created.plusSeconds(random.nextLong(age)) : created);
+        return post;
+    }
+
+    private static String title(SplittableRandom random) {
+        var title = words(random, 3 + random.nextInt(6), new StringBuilder());
+        title.setCharAt(0, Character.toUpperCase(title.charAt(0)));
+        return title.toString();
+    }
+
+    private String content(SplittableRandom random) {
+        double min = Math.max(1, this.properties.getMinContentLength());
+        double max = Math.max(min, this.properties.getMaxContentLength());
+        int length = (int) (min * Math.pow(max / min, random.nextDouble()));
+
+        var content = new StringBuilder(length + 16);
+        while (content.length() < length) {
+            if (!content.isEmpty()) {
+                content.append(random.nextInt(8) == 0 ? "\n\n" : " ");
+            }
+            int start = content.length();
+            words(random, 5 + random.nextInt(15), content).append('.');
+            content.setCharAt(start, Character.toUpperCase(content.charAt(start)));
+        }
+        content.setLength(length);
+        return content.toString();
+    }
+
+    private static StringBuilder words(SplittableRandom random, int count, StringBuilder text) {
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text;
+    }
+}
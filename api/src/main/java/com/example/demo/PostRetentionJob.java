@@ -0,0 +1,232 @@
+package com.example.demo;
+
+import com.example.demo.config.BlogProperties;
+import com.example.demo.repository.PostRepository;
+import com.example.demo.search.PostSearchIndex;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Removes the posts not modified for {@code blog.retention.max-age}, moved to the {@code posts_archive} table or
+ * deleted with their comments, see {@link BlogProperties.Retention}.
+ * <p>
+ * A run walks the old posts in the order of the {@code (last_modified_date, id)} index, one chunk per transaction:
+ * the ids of the chunk are read after the last one of the previous chunk, locked while still old, copied and deleted
+ * with bulk statements. Nothing is loaded in the persistence context, a lock is held for one chunk only, and the run
+ * pauses between the chunks. A post modified meanwhile is kept.
+ * <p>
+ * The removed posts are evicted from the posts cache and the search index. They are not published to the change
+ * feed, a run would overflow the subscribers with the removal of posts they are unlikely to display.
+ */
+@Component
+@Slf4j
+public class PostRetentionJob implements MeterBinder, DisposableBean {
+
+    private final BlogProperties.Retention retention;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transaction;
+
+    private final CacheManager cacheManager;
+
+    private final PostSearchIndex searchIndex;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // removed since the start
+    private final AtomicLong removed = new AtomicLong();
+
+    // removed by the current or last run
+    private final AtomicLong removedByRun = new AtomicLong();
+
+    private final ScheduledExecutorService scheduler;
+
+    private Timer chunks;
+
+    public PostRetentionJob(BlogProperties properties,
+                            EntityManager entityManager,
+                            PlatformTransactionManager transactionManager,
+                            CacheManager cacheManager,
+                            PostSearchIndex searchIndex) {
+        this.retention = properties.getRetention();
+        this.entityManager = entityManager;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.cacheManager = cacheManager;
+        this.searchIndex = searchIndex;
+
+        if (this.retention.isEnabled()) {
+            var threadFactory = new CustomizableThreadFactory("post-retention-");
+            threadFactory.setDaemon(true);
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            var interval = this.retention.getInterval().toMillis();
+            this.scheduler.scheduleWithFixedDelay(this::runSafely, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Removes the posts older than the cutoff, unless a run is in progress.
+     *
+     * @return the removed posts
+     */
+    public long run() {
+        if (!this.running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            return removeModifiedBefore(LocalDateTime.now().minus(this.retention.getMaxAge()));
+        } finally {
+            this.running.set(false);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("post.retention.rows", this.removed, AtomicLong::get)
+                .description("Old posts removed by the retention")
+                .tag("action", this.retention.getAction().name().toLowerCase())
+                .register(registry);
+        Gauge.builder("post.retention.run.rows", this.removedByRun, AtomicLong::get)
+                .description("Old posts removed by the current or last run of the retention")
+                .register(registry);
+        this.chunks = Timer.builder("post.retention.chunk")
+                .description("Transactions of the retention, one per chunk")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+        }
+    }
+
+    private void runSafely() {
+        try {
+            run();
+        } catch (RuntimeException e) {
+            log.warn("Failed to remove the old posts", e);
+        }
+    }
+
+    private long removeModifiedBefore(LocalDateTime cutoff) {
+        log.info(" start removing the posts not modified since {}, {}", cutoff, this.retention.getAction());
+        this.removedByRun.set(0);
+        long start = System.nanoTime();
+        var cursor = new Cursor(null, null);
+        while (!Thread.currentThread().isInterrupted()) {
+            var chunk = nextChunk(cursor, cutoff);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            cursor = chunk.get(chunk.size() - 1);
+            var ids = chunk.stream().map(Cursor::id).toList();
+
+            long chunkStart = System.nanoTime();
+            var removedIds = this.transaction.execute(status -> remove(ids, cutoff));
+            if (this.chunks != null) {
+                this.chunks.record(System.nanoTime() - chunkStart, TimeUnit.NANOSECONDS);
+            }
+            forget(removedIds);
+            this.removed.addAndGet(removedIds.size());
+            this.removedByRun.addAndGet(removedIds.size());
+
+            if (chunk.size() < this.retention.getChunkSize()) {
+                break;
+            }
+            try {
+                Thread.sleep(this.retention.getPause().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        long removed = this.removedByRun.get();
+        long elapsed = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info(" removed {} old posts in {} ms, {} posts/s", removed, elapsed, removed * 1000 / elapsed);
+        return removed;
+    }
+
+    private List<Cursor> nextChunk(Cursor after, LocalDateTime cutoff) {
+        return this.transaction.execute(status -> this.entityManager
+                .createQuery("""
+                        select p.id, p.lastModifiedDate from Post p
+                        where p.lastModifiedDate < :cutoff
+                        and (:date is null or p.lastModifiedDate > :date or (p.lastModifiedDate = :date and p.id > :id))
+                        order by p.lastModifiedDate, p.id
+                        """, Cursor.class)
+                .setParameter("cutoff", cutoff)
+                .setParameter("date", after.lastModifiedDate())
+                .setParameter("id", after.id())
+                .setMaxResults(this.retention.getChunkSize())
+                .getResultList());
+    }
+
+    private List<Long> remove(List<Long> ids, LocalDateTime cutoff) {
+        // the posts modified since they were read are kept, the others can not be modified until the commit
+        var locked = this.entityManager
+                .createQuery("select p.id from Post p where p.id in :ids and p.lastModifiedDate < :cutoff", Long.class)
+                .setParameter("ids", ids)
+                .setParameter("cutoff", cutoff)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        if (locked.isEmpty()) {
+            return locked;
+        }
+
+        if (this.retention.getAction() == BlogProperties.Action.ARCHIVE) {
+            // in SQL, the generic id of the posts can not be assigned in a HQL insert, the content is copied as stored
+            this.entityManager
+                    .createNativeQuery("""
+                            insert into posts_archive (id, version, title, content, comment_count,
+                                created_date, created_by, last_modified_date, last_modified_by, archived_date)
+                            select id, version, title, content, comment_count,
+                                created_date, created_by, last_modified_date, last_modified_by, :now
+                            from posts where id in (:ids)
+                            """)
+                    .setParameter("now", LocalDateTime.now())
+                    .setParameter("ids", locked)
+                    .executeUpdate();
+        }
+        // the comments are deleted by the foreign key
+        this.entityManager.createQuery("delete from Post p where p.id in :ids")
+                .setParameter("ids", locked)
+                .executeUpdate();
+        return locked;
+    }
+
+    private void forget(List<Long> ids) {
+        var cache = this.cacheManager.getCache(PostRepository.POSTS_CACHE);
+        for (var id : ids) {
+            if (cache != null) {
+                cache.evict(id);
+            }
+            this.searchIndex.remove(id);
+        }
+    }
+
+    record Cursor(Long id, LocalDateTime lastModifiedDate) {
+    }
+}
@@ -1,12 +1,42 @@
 package com.example.demo.config;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 @ConfigurationProperties(prefix = "blog")
 @Data
 public class BlogProperties {
     private String title = "Nobody's Blog";
     private String description = "Description of Nobody's Blog";
     private String author = "Nobody";
-}
\ No newline at end of file
+
+    // not part of the /info
+    @JsonIgnore
+    private Retention retention = new Retention();
+
+    /**
+     * The removal of the old posts, see {@link com.example.demo.PostRetentionJob}.
+     */
+    @Data
+    public static class Retention {
+        private boolean enabled = false;
+        // the posts not modified for this long are removed
+        private Duration maxAge = Duration.ofDays(730);
+        private Action action = Action.ARCHIVE;
+        // posts removed per transaction
+        private int chunkSize = 500;
+        // between the chunks, leaves room for the live traffic
+        private Duration pause = Duration.ofMillis(200);
+        // between the end of a run and the start of the next one
+        private Duration interval = Duration.ofHours(1);
+    }
+
+    public enum Action {
+        // moved to the posts_archive table
+        ARCHIVE,
+        DELETE
+    }
+}
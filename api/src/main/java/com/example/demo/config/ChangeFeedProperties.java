@@ -0,0 +1,21 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "blog.changes")
+@Data
+public class ChangeFeedProperties {
+    // the latest changes kept to resume a feed from its Last-Event-ID
+    private int replaySize = 1_000;
+    // a subscriber this many changes behind is disconnected, it resumes from its Last-Event-ID
+    private int subscriberBufferSize = 256;
+    private int maxSubscribers = 10_000;
+    // threads writing the changes to the subscribers
+    private int dispatchThreads = 4;
+    private Duration heartbeat = Duration.ofSeconds(30);
+    // the client reconnects after this, a proxy closing idle connections needs a shorter one
+    private Duration timeout = Duration.ofMinutes(30);
+}
@@ -2,15 +2,20 @@ package com.example.demo.config;
 
 import java.util.Optional;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import com.example.demo.domain.Username;
+import com.example.demo.repository.RepositoryRowsInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 @EnableJpaAuditing
@@ -24,4 +29,24 @@ public class DataJpaConfig {
                 .map(Authentication::getName)
                 .map(Username::new);
     }
+
+    /**
+     * Adds the row counts to the repositories, the same way Spring Boot adds its invocation timer.
+     */
+    @Bean
+    static BeanPostProcessor repositoryRowsMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, information) -> proxyFactory.addAdvice(
+                                    new RepositoryRowsInterceptor(meterRegistry.getObject(), information.getRepositoryInterface())
+                            )
+                    ));
+                }
+                return bean;
+            }
+        };
+    }
 }
@@ -0,0 +1,21 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "blog.idempotency")
+@Data
+public class IdempotencyProperties {
+    // keys remembered in memory, the least recently recorded ones are forgotten beyond this
+    private long maximumKeys = 100_000;
+    // a retry after this runs the request again
+    private Duration ttl = Duration.ofHours(24);
+    // how long a retry waits for the request it duplicates before answering 409
+    private Duration waitTimeout = Duration.ofSeconds(10);
+    // also records the keys in the idempotency_keys table, for the retries reaching another node
+    private boolean table = false;
+    // how often the expired keys are deleted from the table
+    private Duration purgeInterval = Duration.ofHours(1);
+}
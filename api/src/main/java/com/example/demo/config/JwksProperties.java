@@ -0,0 +1,22 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.Resource;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "auth0.jwks")
+@Data
+public class JwksProperties {
+    // a static JWK set used instead of the one published by the issuer, eg. `classpath:jwks.json`
+    private Resource location;
+    private Duration cacheTtl = Duration.ofMinutes(15);
+    private Duration refreshTimeout = Duration.ofSeconds(15);
+    // keys are refreshed in the background this long before the cache expires
+    private Duration refreshAhead = Duration.ofMinutes(1);
+    // how long the last known keys are served while the issuer is unreachable
+    private Duration outageTolerance = Duration.ofHours(6);
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration readTimeout = Duration.ofSeconds(5);
+}
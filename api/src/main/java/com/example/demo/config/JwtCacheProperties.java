@@ -0,0 +1,15 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "auth0.jwt-cache")
+@Data
+public class JwtCacheProperties {
+    private boolean enabled = true;
+    private long maximumSize = 10_000;
+    // upper bound of an entry lifetime, entries are always evicted at the `exp` of the token
+    private Duration maximumTtl = Duration.ofMinutes(10);
+}
@@ -0,0 +1,20 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "blog.rate-limit")
+@Data
+public class RateLimitProperties {
+    private boolean enabled = true;
+    // requests an authenticated subject may send at once, then `requests-per-second` on average
+    private int burst = 50;
+    private double requestsPerSecond = 20;
+    // the buckets of the subjects idle for this long are dropped
+    private Duration idleTimeout = Duration.ofMinutes(10);
+    private long maximumSubjects = 100_000;
+    // writes processed at the same time by all the subjects, keep it close to the size of the connection pool
+    private int maxConcurrentWrites = 20;
+}
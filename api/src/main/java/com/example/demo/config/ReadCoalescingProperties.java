@@ -0,0 +1,13 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "blog.read-coalescing")
+@Data
+public class ReadCoalescingProperties {
+    // how long a request waits for the same post loaded by another request before answering 503
+    private Duration timeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,27 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "blog.replica")
+@Data
+public class ReplicaProperties {
+    private boolean enabled = false;
+    private String url;
+    private String username;
+    private String password;
+    private int maximumPoolSize = 10;
+    // a read waits this long for a replica connection before falling back to the primary
+    private Duration connectionTimeout = Duration.ofSeconds(1);
+    // the reads go to the primary while the replica is further behind, and the reads of a post written in this
+    // window too
+    private Duration maxLag = Duration.ofSeconds(5);
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+    // the seconds the replica is behind its primary, a database that is not a standby is never behind
+    private String lagQuery = """
+            select case when not pg_is_in_recovery() or pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0
+                else extract(epoch from now() - pg_last_xact_replay_timestamp()) end
+            """;
+}
@@ -0,0 +1,15 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "blog.search")
+@Data
+public class SearchProperties {
+    // the words of a post past this limit are not indexed
+    private int maxTermsPerPost = 10_000;
+    // one per distinct word of each indexed post, about 8 bytes each, the posts past this limit are not indexed
+    private long maxPostings = 20_000_000;
+    private int defaultResults = 20;
+    private int maxResults = 100;
+}
@@ -1,7 +1,14 @@
 package com.example.demo.config;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -13,18 +20,48 @@ import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
 import org.springframework.security.oauth2.core.OAuth2TokenValidator;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
-import org.springframework.security.oauth2.jwt.JwtDecoders;
 import org.springframework.security.oauth2.jwt.JwtValidators;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.web.authentication.BearerTokenAuthenticationFilter;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.web.client.RestOperations;
 
 import com.example.demo.security.AudienceValidator;
+import com.example.demo.security.CachingJwtDecoder;
+import com.example.demo.security.IssuerJwkSetSource;
+import com.example.demo.security.IssuerJwtDecoder;
+import com.example.demo.security.RateLimitFilter;
+import com.example.demo.security.TimedJwtDecoder;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.DefaultJOSEObjectTypeVerifier;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 public class SecurityConfig {
 
     @Bean
-    SecurityFilterChain springWebFilterChain(HttpSecurity http) throws Exception {
+    SecurityFilterChain springWebFilterChain(HttpSecurity http,
+                                             RateLimitProperties rateLimit,
+                                             MeterRegistry meterRegistry) throws Exception {
+        if (rateLimit.isEnabled()) {
+            // after the bearer token authentication, the limits are per subject of the token
+            http.addFilterAfter(new RateLimitFilter(
+                    rateLimit.getBurst(),
+                    rateLimit.getRequestsPerSecond(),
+                    rateLimit.getIdleTimeout(),
+                    rateLimit.getMaximumSubjects(),
+                    rateLimit.getMaxConcurrentWrites(),
+                    meterRegistry
+            ), BearerTokenAuthenticationFilter.class);
+        }
         return http
                 .httpBasic(AbstractHttpConfigurer::disable)
                 .csrf(AbstractHttpConfigurer::disable)
@@ -43,22 +80,82 @@ public class SecurityConfig {
     }
 
     @Bean
-    JwtDecoder jwtDecoder(OAuth2ResourceServerProperties properties, @Value("${auth0.audience}") String audience) {
+    JwtDecoder jwtDecoder(OAuth2ResourceServerProperties properties,
+                          TrustedIssuersProperties issuers,
+                          JwksProperties jwks,
+                          JwtCacheProperties cacheProperties,
+                          RestTemplateBuilder restTemplateBuilder,
+                          MeterRegistry meterRegistry,
+                          @Value("${auth0.audience}") String audience) throws IOException, ParseException {
+        // the audience expected in the tokens of each trusted issuer
+        var audiences = new LinkedHashMap<String, String>();
+        audiences.put(properties.getJwt().getIssuerUri(), audience);
+        for (var tenant : issuers.getTrusted()) {
+            audiences.put(tenant.getIssuerUri(), tenant.getAudience() != null ? tenant.getAudience() : audience);
+        }
+
+        JWKSource<SecurityContext> staticKeys = null;
+        if (jwks.getLocation() != null) {
+            try (var in = jwks.getLocation().getInputStream()) {
+                staticKeys = new ImmutableJWKSet<>(JWKSet.load(in));
+            }
+        }
+        var rest = restTemplateBuilder
+                .connectTimeout(jwks.getConnectTimeout())
+                .readTimeout(jwks.getReadTimeout())
+                .build();
+
+        JWKSource<SecurityContext> keys = staticKeys;
+        var issuerJwtDecoder = new IssuerJwtDecoder(audiences.keySet(), issuer -> {
+            var jwkSource = keys != null ? keys : jwkSource(issuer, jwks, rest);
+            var decoder = new TimedJwtDecoder(jwtDecoder(issuer, audiences.get(issuer), jwkSource), meterRegistry, issuer);
+            return new IssuerJwtDecoder.Decoder(decoder, jwkSource instanceof Closeable closeable ? closeable : null);
+        }, issuers.getMaximumDecoders(), issuers.getIdleTimeout());
+        issuerJwtDecoder.bindTo(meterRegistry);
+
+        // skip the signature verification and validation of the tokens seen recently
+        if (cacheProperties.isEnabled()) {
+            var cachingJwtDecoder = new CachingJwtDecoder(issuerJwtDecoder, cacheProperties.getMaximumSize(), cacheProperties.getMaximumTtl());
+            cachingJwtDecoder.bindTo(meterRegistry);
+            return cachingJwtDecoder;
+        }
+        return issuerJwtDecoder;
+    }
+
+    private static JWKSource<SecurityContext> jwkSource(String issuerUri, JwksProperties jwks, RestOperations rest) {
+        /*
+         * The issuer is contacted on the first token instead of at startup. The keys are then refreshed in the
+         * background before the cache expires, concurrent lookups of an unknown `kid` share a single fetch, and the
+         * last known keys are kept while the issuer is unreachable.
+         */
+        return JWKSourceBuilder.create(new IssuerJwkSetSource(issuerUri, rest))
+                .cache(jwks.getCacheTtl().toMillis(), jwks.getRefreshTimeout().toMillis())
+                .refreshAheadCache(jwks.getRefreshAhead().toMillis(), true)
+                .outageTolerant(jwks.getOutageTolerance().toMillis())
+                .build();
+    }
+
+    private static JwtDecoder jwtDecoder(String issuerUri, String audience, JWKSource<SecurityContext> jwkSource) {
         /*
          * By default, Spring Security does not validate the "aud" claim of the token,
          * to ensure that this token is
          * indeed intended for our app. Adding our own validator is easy to do:
          */
-
-        String issuerUri = properties.getJwt().getIssuerUri();
-        NimbusJwtDecoder jwtDecoder = JwtDecoders.fromOidcIssuerLocation(issuerUri);
+        var algorithms = new HashSet<JWSAlgorithm>(JWSAlgorithm.Family.RSA);
+        algorithms.addAll(JWSAlgorithm.Family.EC);
+        var jwtProcessor = new DefaultJWTProcessor<SecurityContext>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(algorithms, jwkSource));
+        jwtProcessor.setJWSTypeVerifier(new DefaultJOSEObjectTypeVerifier<>(JOSEObjectType.JWT, new JOSEObjectType("at+jwt"), null));
+        // the claims are checked by the validators below
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        NimbusJwtDecoder jwtDecoder = new NimbusJwtDecoder(jwtProcessor);
 
         OAuth2TokenValidator<Jwt> audienceValidator = AudienceValidator.of(audience);
         OAuth2TokenValidator<Jwt> withIssuer = JwtValidators.createDefaultWithIssuer(issuerUri);
         OAuth2TokenValidator<Jwt> withAudience = new DelegatingOAuth2TokenValidator<>(withIssuer, audienceValidator);
 
         jwtDecoder.setJwtValidator(withAudience);
-
         return jwtDecoder;
     }
 }
@@ -0,0 +1,26 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "blog.seed")
+@Data
+public class SeedProperties {
+    // checked when the application starts rather than as a bean condition, so an AOT processed build can turn it off
+    private boolean enabled = true;
+    // generated when the posts table is empty, eg. millions for a capacity test
+    private long posts = 2;
+    // posts inserted per transaction, a multiple of hibernate.jdbc.batch_size
+    private int chunkSize = 1_000;
+    // chunks inserted concurrently, each holds a connection of the pool
+    private int threads = 4;
+    // distinct authors, a few of them write most of the posts
+    private int authors = 50;
+    // the content lengths are spread between these, most posts are short
+    private int minContentLength = 200;
+    private int maxContentLength = 20_000;
+    // the posts are created over this period until now
+    private Duration period = Duration.ofDays(365);
+}
@@ -0,0 +1,26 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "auth0.issuers")
+@Data
+public class TrustedIssuersProperties {
+    // tenants trusted besides the `issuer-uri` of the resource server
+    private List<Tenant> trusted = new ArrayList<>();
+    // decoders of the tenants kept built, the least recently used ones are closed beyond this
+    private long maximumDecoders = 100;
+    // the decoder of a tenant without tokens for this long is closed, it is built again on the next token
+    private Duration idleTimeout = Duration.ofHours(1);
+
+    @Data
+    public static class Tenant {
+        private String issuerUri;
+        // `auth0.audience` when not set
+        private String audience;
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.demo.config;
 
+import com.example.demo.web.CommentHandler;
+import com.example.demo.web.PostBatchHandler;
+import com.example.demo.web.PostChangeFeed;
 import com.example.demo.web.PostHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -21,13 +24,25 @@ import static org.springframework.web.servlet.function.ServerResponse.ok;
 public class WebConfig {
     
     @Bean
-    public RouterFunction<ServerResponse> routes(PostHandler postHandler, BlogProperties blogProperties) {
+    public RouterFunction<ServerResponse> routes(PostHandler postHandler,
+                                                 PostBatchHandler postBatchHandler,
+                                                 PostChangeFeed postChangeFeed,
+                                                 CommentHandler commentHandler,
+                                                 BlogProperties blogProperties) {
         return route(GET("/info"), (req) -> ok().body(blogProperties))
                 .andRoute(GET("/posts"), postHandler::all)
+                .andRoute(GET("/posts/export"), postHandler::export)
+                .andRoute(GET("/posts/search"), postHandler::search)
+                .andRoute(GET("/posts/changes"), postChangeFeed::subscribe)
+                .andRoute(GET("/posts/comments"), commentHandler::firstOfPosts)
                 .andRoute(POST("/posts"), postHandler::create)
+                .andRoute(POST("/posts/batch"), postBatchHandler::batch)
                 .andRoute(GET("/posts/{id}"), postHandler::get)
                 .andRoute(PUT("/posts/{id}"), postHandler::update)
-                .andRoute(DELETE("/posts/{id}"), postHandler::delete);
+                .andRoute(DELETE("/posts/{id}"), postHandler::delete)
+                .andRoute(GET("/posts/{id}/comments"), commentHandler::all)
+                .andRoute(POST("/posts/{id}/comments"), commentHandler::create)
+                .andRoute(DELETE("/posts/{id}/comments/{commentId}"), commentHandler::delete);
     }
 
     @Bean
@@ -0,0 +1,59 @@
+package com.example.demo.domain;
+
+import jakarta.persistence.AttributeOverride;
+import jakarta.persistence.Basic;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Embedded;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * A post moved out of the posts table by the retention, see {@link com.example.demo.PostRetentionJob}.
+ * Its comments are not kept.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "posts_archive")
+public class ArchivedPost implements Serializable {
+
+    // the id of the post
+    @Id
+    private Long id;
+
+    private Long version;
+
+    private String title;
+
+    // copied as stored, see Post#content
+    @Basic(fetch = FetchType.LAZY)
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "bytea")
+    @ToString.Exclude
+    private String content;
+
+    private long commentCount;
+
+    private LocalDateTime createdDate;
+
+    @AttributeOverride(name = "username", column = @Column(name = "created_by"))
+    @Embedded
+    private Username createdBy;
+
+    private LocalDateTime lastModifiedDate;
+
+    @AttributeOverride(name = "username", column = @Column(name = "last_modified_by"))
+    @Embedded
+    private Username lastModifiedBy;
+
+    private LocalDateTime archivedDate;
+}
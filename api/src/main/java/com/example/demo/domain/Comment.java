@@ -0,0 +1,47 @@
+package com.example.demo.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.io.Serializable;
+
+@Data
+@ToString
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "comments", indexes = {
+        // keyset pagination of the comments of a post, see CommentRepository#findByPostId
+        @Index(name = "idx_comments_post_id_id", columnList = "post_id, id")
+})
+public class Comment extends AbstractAuditableEntity<Long> implements Serializable {
+
+    @NotEmpty
+    private String content;
+
+    // set by the repository, see CommentRepository#addToPost
+    @Column(name = "post_id", nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long postId;
+
+    // only maps the foreign key, the comments of a deleted post are deleted with it
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "post_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Post post;
+}
@@ -0,0 +1,97 @@
+package com.example.demo.domain;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores a text as UTF-8 bytes, deflated when it is long enough to be worth it.
+ * <p>
+ * The first byte of the column tells how the rest is stored, {@link #PLAIN} or {@link #DEFLATED}. Texts shorter than
+ * {@link #THRESHOLD} bytes, or which do not get smaller, are stored plain.
+ * <p>
+ * A {@code text} column written before is converted once by {@code docker/postgres/posts-content-bytea.sql}, which
+ * prefixes the existing contents with the {@link #PLAIN} byte.
+ */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+
+    static final int THRESHOLD = 512;
+
+    static final byte PLAIN = 0;
+
+    static final byte DEFLATED = 1;
+
+    @Override
+    public byte[] convertToDatabaseColumn(String text) {
+        if (text == null) {
+            return null;
+        }
+        var bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= THRESHOLD) {
+            var deflated = deflate(bytes);
+            if (deflated.length < bytes.length) {
+                return deflated;
+            }
+        }
+        var plain = new byte[bytes.length + 1];
+        plain[0] = PLAIN;
+        System.arraycopy(bytes, 0, plain, 1, bytes.length);
+        return plain;
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        return switch (data[0]) {
+            case PLAIN -> new String(data, 1, data.length - 1, StandardCharsets.UTF_8);
+            case DEFLATED -> new String(inflate(data), StandardCharsets.UTF_8);
+            default -> throw new IllegalArgumentException("Unknown text encoding: " + data[0]);
+        };
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        var deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            var out = new ByteArrayOutputStream(bytes.length / 2 + 16);
+            out.write(DEFLATED);
+            var buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) {
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(data, 1, data.length - 1);
+            var out = new ByteArrayOutputStream(data.length * 4);
+            var buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated deflated text");
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid deflated text", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
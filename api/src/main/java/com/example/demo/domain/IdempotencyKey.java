@@ -0,0 +1,72 @@
+package com.example.demo.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * The response recorded for an {@code Idempotency-Key}, see {@link com.example.demo.web.IdempotentRequests}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        // the expired keys are deleted in bulk
+        @Index(name = "idx_idempotency_keys_created_date", columnList = "created_date")
+})
+public class IdempotencyKey implements Persistable<String>, Serializable {
+
+    // the subject of the token and the header value
+    @Id
+    @Column(name = "request_key", length = 512)
+    private String key;
+
+    // of the request body, the key is not reused for another request
+    @Column(length = 64, nullable = false)
+    private String fingerprint;
+
+    private int status;
+
+    private String location;
+
+    @Column(nullable = false)
+    private LocalDateTime createdDate;
+
+    // a new key is always inserted, not merged, a key committed meanwhile by another node fails on the primary key
+    @Transient
+    @Builder.Default
+    @EqualsAndHashCode.Exclude
+    private boolean inserted = false;
+
+    @Override
+    public String getId() {
+        return this.key;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !this.inserted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markInserted() {
+        this.inserted = true;
+    }
+}
@@ -1,8 +1,14 @@
 package com.example.demo.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 
+import jakarta.persistence.Basic;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotEmpty;
 import java.io.Serializable;
@@ -13,13 +19,30 @@ import java.io.Serializable;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        // keyset pagination of the post list, see PostHandler#all
+        @Index(name = "idx_posts_created_date_id", columnList = "created_date DESC, id DESC"),
+        @Index(name = "idx_posts_created_by_created_date_id", columnList = "created_by, created_date DESC, id DESC"),
+        // the keyset of the retention, see PostRetentionJob
+        @Index(name = "idx_posts_last_modified_date_id", columnList = "last_modified_date, id")
+})
 public class Post extends AbstractAuditableEntity<Long> implements Serializable {
 
     @NotEmpty
     private String title;
 
+    // loaded on first access and stored deflated, see PostRepository#findCachedById and PostRepository#streamAll
     @NotEmpty
+    @Basic(fetch = FetchType.LAZY)
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "bytea")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private String content;
 
+    // maintained with the comments, see CommentRepository#addToPost, and never written by an update of the post
+    @Column(nullable = false, updatable = false)
+    @JsonIgnore
+    private long commentCount;
+
 }
@@ -0,0 +1,20 @@
+package com.example.demo.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns of a post shown in the post list, everything but the content, and the number of its comments.
+ */
+public record PostSummary(Long id,
+                          Long version,
+                          String title,
+                          Username createdBy,
+                          LocalDateTime createdDate,
+                          LocalDateTime lastModifiedDate,
+                          Long commentCount) {
+
+    public static PostSummary of(Post post) {
+        return new PostSummary(post.getId(), post.getVersion(), post.getTitle(),
+                post.getCreatedBy(), post.getCreatedDate(), post.getLastModifiedDate(), post.getCommentCount());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Comment;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface CommentRepository extends JpaRepository<Comment, Long> {
+
+    /**
+     * Keyset paginated comments of a post, oldest first, {@code after} is the id of the last comment of the previous
+     * page.
+     */
+    @Query("""
+            select c from Comment c
+            where c.postId = :postId and (:after is null or c.id > :after)
+            order by c.id
+            """)
+    List<Comment> findByPostId(Long postId, Long after, Limit limit);
+
+    /**
+     * The first {@code limit} comments of each of the posts in a single query, ordered by post and comment.
+     */
+    @Query("""
+            select c from Comment c
+            where c.id in (
+                select r.id from (
+                    select c2.id as id, row_number() over (partition by c2.postId order by c2.id) as position
+                    from Comment c2
+                    where c2.postId in :postIds
+                ) r
+                where r.position <= :limit
+            )
+            order by c.postId, c.id
+            """)
+    List<Comment> findFirstByPostIds(Collection<Long> postIds, int limit);
+
+    /**
+     * Adds a comment to a post and counts it in the same transaction, the post row stays locked until the commit.
+     *
+     * @return the saved comment, empty when the post does not exist
+     */
+    @Transactional
+    default Optional<Comment> addToPost(Long postId, Comment comment) {
+        if (incrementCommentCount(postId, 1) == 0) {
+            return Optional.empty();
+        }
+        comment.setPostId(postId);
+        return Optional.of(save(comment));
+    }
+
+    /**
+     * Deletes a comment of a post and uncounts it in the same transaction.
+     *
+     * @return whether the post had the comment
+     */
+    @Transactional
+    default boolean removeFromPost(Long postId, Long id) {
+        if (removeById(postId, id) == 0) {
+            return false;
+        }
+        incrementCommentCount(postId, -1);
+        return true;
+    }
+
+    /**
+     * The number of comments of a post, as counted by {@link #addToPost} and {@link #removeFromPost}.
+     */
+    @Query("select p.commentCount from Post p where p.id = :postId")
+    Optional<Long> findCommentCount(Long postId);
+
+    // bypasses the version of the post, a comment does not conflict with an update of the post
+    @Modifying
+    @Transactional
+    @Query("update Post p set p.commentCount = p.commentCount + :delta where p.id = :postId")
+    int incrementCommentCount(Long postId, int delta);
+
+    @Modifying
+    @Transactional
+    @Query("delete from Comment c where c.postId = :postId and c.id = :id")
+    int removeById(Long postId, Long id);
+}
@@ -0,0 +1,27 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    @Query("select k from IdempotencyKey k where k.key = :key and k.createdDate >= :since")
+    Optional<IdempotencyKey> findRecordedSince(String key, LocalDateTime since);
+
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyKey k where k.createdDate < :before")
+    int deleteCreatedBefore(LocalDateTime before);
+
+    // an expired key about to be recorded again
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyKey k where k.key = :key and k.createdDate < :before")
+    int deleteExpired(String key, LocalDateTime before);
+}
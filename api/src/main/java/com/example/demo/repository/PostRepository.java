@@ -1,7 +1,95 @@
 package com.example.demo.repository;
 
 import com.example.demo.domain.Post;
+import jakarta.persistence.QueryHint;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface PostRepository extends JpaRepository<Post, Long> {
-}
\ No newline at end of file
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+public interface PostRepository extends JpaRepository<Post, Long>, JpaSpecificationExecutor<Post>, PostSummaryRepository {
+
+    int STREAM_FETCH_SIZE = 500;
+
+    String POSTS_CACHE = "posts";
+
+    /**
+     * Cached lookup for the read path, concurrent misses of the same id share one query and missing posts are
+     * remembered too. The returned post is shared by all readers and must not be modified, use {@link #findById}
+     * to update it.
+     */
+    @Cacheable(cacheNames = POSTS_CACHE, sync = true)
+    @EntityGraph(attributePaths = "content")
+    @Query("select p from Post p where p.id = :id")
+    Optional<Post> findCachedById(Long id);
+
+    /**
+     * Updates a post in a single statement, the version is checked only when {@code version} is given.
+     * Auditing listeners are bypassed, so the caller provides the last modified date and user.
+     *
+     * @return the number of updated rows, 0 when the post does not exist or has another version
+     */
+    @Modifying
+    @Transactional
+    @CacheEvict(cacheNames = POSTS_CACHE, key = "#p0")
+    @Query("""
+            update Post p set p.title = :title, p.content = :content, p.version = p.version + 1,
+                p.lastModifiedDate = :lastModifiedDate, p.lastModifiedBy.username = :lastModifiedBy
+            where p.id = :id and (:version is null or p.version = :version)
+            """)
+    int updateContent(Long id, Long version, String title, String content,
+                      LocalDateTime lastModifiedDate, String lastModifiedBy);
+
+    /**
+     * Deletes a post in a single statement.
+     *
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Transactional
+    @CacheEvict(cacheNames = POSTS_CACHE, key = "#p0")
+    @Query("delete from Post p where p.id = :id")
+    int removeById(Long id);
+
+    @Override
+    @CacheEvict(cacheNames = POSTS_CACHE, key = "#result.id")
+    <S extends Post> S save(S entity);
+
+    @Override
+    @CacheEvict(cacheNames = POSTS_CACHE, key = "#p0.id")
+    void delete(Post entity);
+
+    @Override
+    @CacheEvict(cacheNames = POSTS_CACHE, key = "#p0")
+    void deleteById(Long id);
+
+    @Override
+    @CacheEvict(cacheNames = POSTS_CACHE, allEntries = true)
+    void deleteAll();
+
+    @Query("select p.version from Post p where p.id = :id")
+    Optional<Long> findVersionById(Long id);
+
+    /**
+     * Streams all posts through a server side cursor, must be consumed inside a transaction and closed after use.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @EntityGraph(attributePaths = "content")
+    @Query("select p from Post p order by p.id")
+    Stream<Post> streamAll();
+}
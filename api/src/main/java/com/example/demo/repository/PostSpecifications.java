@@ -0,0 +1,61 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Post;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Query predicates for listing posts, designed to walk the {@code (created_date, id)} indexes of the posts table.
+ */
+public final class PostSpecifications {
+
+    private PostSpecifications() {
+    }
+
+    /**
+     * Case-insensitive substring of the title, {@code %} and {@code _} match themselves. A {@code like '%...%'} is
+     * not served by the btree indexes, on PostgreSQL by the trigram index of {@code docker/postgres/posts-title-trgm.sql}
+     * only, otherwise it scans the posts.
+     */
+    public static Specification<Post> titleContains(String title) {
+        if (!StringUtils.hasText(title)) {
+            return null;
+        }
+        var pattern = "%" + escapeLike(title.trim().toLowerCase()) + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get("title")), pattern, '\\');
+    }
+
+    public static Specification<Post> createdBy(String author) {
+        if (!StringUtils.hasText(author)) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("createdBy").get("username"), author);
+    }
+
+    public static Specification<Post> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    /**
+     * Keyset predicate for a {@code createdDate DESC, id DESC} ordering, selects the rows after the given position.
+     */
+    public static Specification<Post> createdBefore(LocalDateTime createdDate, Long id) {
+        if (createdDate == null || id == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("createdDate"), createdDate),
+                cb.and(
+                        cb.equal(root.get("createdDate"), createdDate),
+                        cb.lessThan(root.get("id"), id)
+                )
+        );
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
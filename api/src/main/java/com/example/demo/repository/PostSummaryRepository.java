@@ -0,0 +1,17 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Post;
+import com.example.demo.domain.PostSummary;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface PostSummaryRepository {
+
+    /**
+     * Lists the summaries of the posts matching the given specification, the content column is not read and no
+     * entity is loaded into the persistence context.
+     */
+    List<PostSummary> findSummaries(Specification<Post> spec, Sort sort, int limit);
+}
@@ -0,0 +1,46 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Post;
+import com.example.demo.domain.PostSummary;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+@RequiredArgsConstructor
+class PostSummaryRepositoryImpl implements PostSummaryRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PostSummary> findSummaries(Specification<Post> spec, Sort sort, int limit) {
+        var cb = this.entityManager.getCriteriaBuilder();
+        var query = cb.createQuery(PostSummary.class);
+        var root = query.from(Post.class);
+        query.select(cb.construct(PostSummary.class,
+                root.get("id"),
+                root.get("version"),
+                root.get("title"),
+                root.get("createdBy"),
+                root.get("createdDate"),
+                root.get("lastModifiedDate"),
+                root.get("commentCount")
+        ));
+        if (spec != null) {
+            var predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        query.orderBy(toOrders(sort, root, cb));
+        return this.entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.repository;
+
+import com.example.demo.config.ReplicaProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Keeps the reads of the posts written lately on the primary, for {@code maxLag} after the write the replica may
+ * not have it yet, and the posts cache must not be filled from the replica.
+ * <p>
+ * The read-only transactions go to the replica, a read joining a read-write transaction goes to the primary.
+ * Nothing is tracked when the replica is disabled.
+ */
+@Component
+public class ReadYourWrites {
+
+    private static final long MAXIMUM_TRACKED_WRITES = 100_000;
+
+    private final Cache<Long, Boolean> recentWrites;
+
+    private final TransactionTemplate primary;
+
+    public ReadYourWrites(ReplicaProperties properties, PlatformTransactionManager transactionManager) {
+        this.recentWrites = properties.isEnabled()
+                ? Caffeine.newBuilder().expireAfterWrite(properties.getMaxLag()).maximumSize(MAXIMUM_TRACKED_WRITES).build()
+                : null;
+        this.primary = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Records a write of the post, call it before an update or a delete, a read in between would go to the replica.
+     */
+    public void written(Long id) {
+        if (this.recentWrites != null) {
+            this.recentWrites.put(id, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Reads the post on the primary when it was written lately, on the replica otherwise.
+     */
+    public <T> T read(Long id, Supplier<T> read) {
+        if (this.recentWrites != null && this.recentWrites.getIfPresent(id) != null) {
+            return onPrimary(read);
+        }
+        return read.get();
+    }
+
+    /**
+     * Reads on the primary, for the follow-up reads of a write.
+     */
+    public <T> T onPrimary(Supplier<T> read) {
+        if (this.recentWrites == null) {
+            return read.get();
+        }
+        return this.primary.execute(status -> read.get());
+    }
+}
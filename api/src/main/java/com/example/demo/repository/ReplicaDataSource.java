@@ -0,0 +1,151 @@
+package com.example.demo.repository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The connections of the read-only transactions, taken from a replica while it is reachable and no further behind
+ * than {@code maxLag}, and from the primary otherwise.
+ * <p>
+ * The replica is checked in the background every {@code healthCheckInterval}, and until the first check succeeds.
+ * A replica failing to give a connection is skipped until the next successful check.
+ */
+@Slf4j
+public class ReplicaDataSource extends DelegatingDataSource implements MeterBinder, DisposableBean {
+
+    private final DataSource primary;
+
+    private final Duration maxLag;
+
+    private final Duration healthCheckInterval;
+
+    private final String lagQuery;
+
+    private ScheduledExecutorService healthCheck;
+
+    private volatile boolean available;
+
+    private volatile double lagSeconds = Double.NaN;
+
+    public ReplicaDataSource(DataSource replica, DataSource primary,
+                             Duration maxLag, Duration healthCheckInterval, String lagQuery) {
+        super(replica);
+        this.primary = primary;
+        this.maxLag = maxLag;
+        this.healthCheckInterval = healthCheckInterval;
+        this.lagQuery = lagQuery;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        this.healthCheck = Executors.newSingleThreadScheduledExecutor(task -> {
+            var thread = new Thread(task, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.healthCheck.scheduleWithFixedDelay(this::check, 0, this.healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (this.healthCheck != null) {
+            this.healthCheck.shutdownNow();
+        }
+        if (getTargetDataSource() instanceof Closeable pool) {
+            pool.close();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (this.available) {
+            try {
+                return obtainTargetDataSource().getConnection();
+            } catch (SQLException e) {
+                unavailable(e);
+            }
+        }
+        return this.primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (this.available) {
+            try {
+                return obtainTargetDataSource().getConnection(username, password);
+            } catch (SQLException e) {
+                unavailable(e);
+            }
+        }
+        return this.primary.getConnection(username, password);
+    }
+
+    public boolean isAvailable() {
+        return this.available;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("db.replica.available", this, replica -> replica.available ? 1 : 0)
+                .description("Whether the read-only transactions use the replica")
+                .register(registry);
+        Gauge.builder("db.replica.lag", this, replica -> replica.lagSeconds)
+                .description("Seconds the replica is behind the primary at the last health check")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    void check() {
+        var wasAvailable = this.available;
+        try (var connection = obtainTargetDataSource().getConnection();
+             var statement = connection.createStatement()) {
+            statement.setQueryTimeout((int) Math.max(1, this.healthCheckInterval.toSeconds()));
+            double lag = 0;
+            if (StringUtils.hasText(this.lagQuery)) {
+                try (var result = statement.executeQuery(this.lagQuery)) {
+                    // a null lag reads as 0
+                    lag = result.next() ? result.getDouble(1) : 0;
+                }
+            } else {
+                statement.execute("select 1");
+            }
+            this.lagSeconds = lag;
+            this.available = lag * 1000 <= this.maxLag.toMillis();
+            if (wasAvailable && !this.available) {
+                log.warn("Replica is {}s behind, reads go to the primary", lag);
+            }
+        } catch (SQLException | RuntimeException e) {
+            this.lagSeconds = Double.NaN;
+            this.available = false;
+            if (wasAvailable) {
+                log.warn("Replica is unreachable, reads go to the primary", e);
+            }
+        }
+        if (!wasAvailable && this.available) {
+            log.info("Replica is available, reads go to the replica");
+        }
+    }
+
+    private void unavailable(SQLException e) {
+        if (this.available) {
+            this.available = false;
+            log.warn("No connection from the replica, reads go to the primary until the next health check", e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.repository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Records the number of rows read or written by each repository method in the {@value #METRIC_NAME} summary,
+ * next to the {@code spring.data.repository.invocations} timer of Spring Boot.
+ * <p>
+ * Streams are counted while consumed and recorded when closed. Counts, existence checks and {@code void} methods
+ * are not recorded.
+ */
+public class RepositoryRowsInterceptor implements MethodInterceptor {
+
+    public static final String METRIC_NAME = "repository.rows";
+
+    private final MeterRegistry registry;
+
+    private final String repository;
+
+    private final Map<Method, Optional<DistributionSummary>> summaries = new ConcurrentHashMap<>();
+
+    public RepositoryRowsInterceptor(MeterRegistry registry, Class<?> repositoryInterface) {
+        this.registry = registry;
+        this.repository = repositoryInterface.getSimpleName();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        var result = invocation.proceed();
+        var method = invocation.getMethod();
+        var summary = this.summaries.get(method);
+        if (summary == null) {
+            summary = this.summaries.computeIfAbsent(method, this::summary);
+        }
+        if (summary.isEmpty()) {
+            return result;
+        }
+
+        var rows = summary.get();
+        if (result instanceof Stream<?> stream) {
+            var count = new long[1];
+            return stream.peek(row -> count[0]++).onClose(() -> rows.record(count[0]));
+        }
+        rows.record(count(result));
+        return result;
+    }
+
+    private static long count(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof Number number) {
+            // the updated or deleted rows of a modifying query
+            return number.longValue();
+        }
+        return 1;
+    }
+
+    private Optional<DistributionSummary> summary(Method method) {
+        var type = method.getReturnType();
+        boolean scalar = type == void.class || type == boolean.class || type == Boolean.class
+                || type == long.class || type == Long.class || type == int.class || type == Integer.class;
+        if (scalar && !method.isAnnotationPresent(Modifying.class)) {
+            return Optional.empty();
+        }
+        return Optional.of(DistributionSummary.builder(METRIC_NAME)
+                .description("Rows read or written by the repository methods")
+                .baseUnit("rows")
+                .tag("repository", this.repository)
+                .tag("method", method.getName())
+                .register(this.registry));
+    }
+}
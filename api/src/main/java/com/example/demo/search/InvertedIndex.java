@@ -0,0 +1,366 @@
+package com.example.demo.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * An in-memory inverted index of documents made of a title and a content, ranked with BM25.
+ * <p>
+ * Documents get increasing internal numbers, so the postings of a term are sorted int arrays which are only
+ * appended to. A replaced or removed document is marked as deleted and skipped, the deleted documents are dropped
+ * from the postings once they outnumber the live ones. The document frequencies of the ranking only count the live
+ * documents. The postings, one per term of a document, are bounded: a document which does not fit in the remaining
+ * postings is not indexed. A search returns the documents containing all the terms of
+ * the query. Title terms weigh {@value #TITLE_WEIGHT} times the content terms.
+ * <p>
+ * Readers share a read lock, writers take the write lock.
+ */
+public class InvertedIndex {
+
+    static final int TITLE_WEIGHT = 3;
+
+    static final int MIN_TERM_LENGTH = 2;
+
+    static final int MAX_TERM_LENGTH = 32;
+
+    static final int MAX_QUERY_TERMS = 10;
+
+    private static final float K1 = 1.2f;
+
+    private static final float B = 0.75f;
+
+    private static final int MIN_COMPACTION = 1024;
+
+    private final int maxTermsPerDocument;
+
+    private final long maxPostings;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    private final Map<Long, Integer> documents = new HashMap<>();
+
+    private final BitSet deleted = new BitSet();
+
+    private long[] ids = new long[64];
+
+    private int[] lengths = new int[64];
+
+    // the postings of the terms of each document, to count them out when it is deleted
+    private Postings[][] terms = new Postings[64][];
+
+    private int next;
+
+    private long totalLength;
+
+    // the entries of all the postings, of the live and the deleted documents
+    private long postingsCount;
+
+    public InvertedIndex(int maxTermsPerDocument) {
+        this(maxTermsPerDocument, Long.MAX_VALUE);
+    }
+
+    public InvertedIndex(int maxTermsPerDocument, long maxPostings) {
+        this.maxTermsPerDocument = maxTermsPerDocument;
+        this.maxPostings = maxPostings;
+    }
+
+    /**
+     * Indexes a document, replacing the previous version of it.
+     *
+     * @return false when the postings are full, the document is not indexed and its previous version is removed
+     */
+    public boolean put(long id, String title, String content) {
+        var frequencies = new HashMap<String, int[]>();
+        var length = new int[1];
+        tokenize(title, this.maxTermsPerDocument, term -> {
+            frequencies.computeIfAbsent(term, t -> new int[1])[0] += TITLE_WEIGHT;
+            length[0]++;
+        });
+        tokenize(content, this.maxTermsPerDocument - length[0], term -> {
+            frequencies.computeIfAbsent(term, t -> new int[1])[0]++;
+            length[0]++;
+        });
+
+        this.lock.writeLock().lock();
+        try {
+            delete(id);
+            if (this.postingsCount + frequencies.size() > this.maxPostings && this.next > this.documents.size()) {
+                compact();
+            }
+            if (this.postingsCount + frequencies.size() > this.maxPostings) {
+                return false;
+            }
+            int document = this.next++;
+            if (document == this.ids.length) {
+                this.ids = Arrays.copyOf(this.ids, document * 2);
+                this.lengths = Arrays.copyOf(this.lengths, document * 2);
+                this.terms = Arrays.copyOf(this.terms, document * 2);
+            }
+            this.ids[document] = id;
+            this.lengths[document] = length[0];
+            this.totalLength += length[0];
+            this.documents.put(id, document);
+            var documentTerms = new Postings[frequencies.size()];
+            int t = 0;
+            for (var entry : frequencies.entrySet()) {
+                var termPostings = this.postings.computeIfAbsent(entry.getKey(), term -> new Postings());
+                termPostings.add(document, entry.getValue()[0]);
+                this.postingsCount++;
+                documentTerms[t++] = termPostings;
+            }
+            this.terms[document] = documentTerms;
+            // a replaced document is deleted too
+            compactIfNeeded();
+            return true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        this.lock.writeLock().lock();
+        try {
+            delete(id);
+            compactIfNeeded();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the documents containing all the terms of the query, best matches first.
+     */
+    public List<Hit> search(String query, int limit) {
+        var terms = new LinkedHashSet<String>();
+        tokenize(query, MAX_QUERY_TERMS, terms::add);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        this.lock.readLock().lock();
+        try {
+            var matched = new ArrayList<Postings>(terms.size());
+            for (var term : terms) {
+                var termPostings = this.postings.get(term);
+                if (termPostings == null) {
+                    return List.of();
+                }
+                matched.add(termPostings);
+            }
+            // walk the rarest term and look the documents up in the postings of the others
+            matched.sort(Comparator.comparingInt(Postings::size));
+
+            int count = this.documents.size();
+            float averageLength = count == 0 ? 1 : (float) this.totalLength / count;
+            var idf = new float[matched.size()];
+            for (int t = 0; t < idf.length; t++) {
+                float frequency = matched.get(t).live;
+                idf[t] = (float) Math.log(1 + (count - frequency + 0.5) / (frequency + 0.5));
+            }
+
+            var top = new PriorityQueue<Hit>(limit + 1, Comparator.comparingDouble(Hit::score));
+            var positions = new int[matched.size()];
+            var rarest = matched.get(0);
+            candidates:
+            for (int i = 0; i < rarest.size; i++) {
+                int document = rarest.documents[i];
+                if (this.deleted.get(document)) {
+                    continue;
+                }
+                float norm = K1 * (1 - B + B * this.lengths[document] / averageLength);
+                float score = 0;
+                for (int t = 0; t < idf.length; t++) {
+                    int frequency;
+                    if (t == 0) {
+                        frequency = rarest.frequencies[i];
+                    } else {
+                        var other = matched.get(t);
+                        int position = Arrays.binarySearch(other.documents, positions[t], other.size, document);
+                        if (position < 0) {
+                            positions[t] = -position - 1;
+                            continue candidates;
+                        }
+                        positions[t] = position;
+                        frequency = other.frequencies[position];
+                    }
+                    score += idf[t] * frequency * (K1 + 1) / (frequency + norm);
+                }
+                top.add(new Hit(this.ids[document], score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+
+            var hits = new ArrayList<Hit>(top);
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed());
+            return hits;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.documents.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    // the document numbers in use, the live and the deleted documents
+    int documentNumbers() {
+        this.lock.readLock().lock();
+        try {
+            return this.next;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public long postings() {
+        this.lock.readLock().lock();
+        try {
+            return this.postingsCount;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public int terms() {
+        this.lock.readLock().lock();
+        try {
+            return this.postings.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private void delete(long id) {
+        var document = this.documents.remove(id);
+        if (document != null) {
+            this.deleted.set(document);
+            this.totalLength -= this.lengths[document];
+            for (var termPostings : this.terms[document]) {
+                termPostings.live--;
+            }
+            this.terms[document] = null;
+        }
+    }
+
+    private void compactIfNeeded() {
+        int removed = this.next - this.documents.size();
+        if (removed >= MIN_COMPACTION && removed > this.documents.size()) {
+            compact();
+        }
+    }
+
+    // renumbers the live documents and drops the deleted ones from the postings
+    private void compact() {
+        var renumbered = new int[this.next];
+        int live = 0;
+        for (int document = 0; document < this.next; document++) {
+            if (this.deleted.get(document)) {
+                renumbered[document] = -1;
+            } else {
+                renumbered[document] = live;
+                this.ids[live] = this.ids[document];
+                this.lengths[live] = this.lengths[document];
+                this.terms[live] = this.terms[document];
+                this.documents.put(this.ids[live], live);
+                live++;
+            }
+        }
+        Arrays.fill(this.terms, live, this.next, null);
+        this.next = live;
+        this.deleted.clear();
+        this.postings.values().removeIf(termPostings -> termPostings.renumber(renumbered) == 0);
+        this.postingsCount = 0;
+        this.postings.values().forEach(termPostings -> this.postingsCount += termPostings.size());
+    }
+
+    /**
+     * Splits a text into lower case terms of letters and digits, at most {@code limit} of them.
+     */
+    static void tokenize(String text, int limit, Consumer<String> terms) {
+        if (text == null) {
+            return;
+        }
+        int count = 0;
+        int start = -1;
+        for (int i = 0; i <= text.length() && count < limit; i++) {
+            boolean part = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (part && start < 0) {
+                start = i;
+            } else if (!part && start >= 0) {
+                int length = i - start;
+                if (length >= MIN_TERM_LENGTH && length <= MAX_TERM_LENGTH) {
+                    terms.accept(text.substring(start, i).toLowerCase());
+                    count++;
+                }
+                start = -1;
+            }
+        }
+    }
+
+    public record Hit(long id, float score) {
+    }
+
+    private static class Postings {
+
+        private int[] documents = new int[4];
+
+        private int[] frequencies = new int[4];
+
+        private int size;
+
+        // the documents which are not deleted
+        private int live;
+
+        int size() {
+            return this.size;
+        }
+
+        void add(int document, int frequency) {
+            if (this.size == this.documents.length) {
+                int capacity = this.size + (this.size >> 1) + 1;
+                this.documents = Arrays.copyOf(this.documents, capacity);
+                this.frequencies = Arrays.copyOf(this.frequencies, capacity);
+            }
+            this.documents[this.size] = document;
+            this.frequencies[this.size] = frequency;
+            this.size++;
+            this.live++;
+        }
+
+        int renumber(int[] renumbered) {
+            int live = 0;
+            for (int i = 0; i < this.size; i++) {
+                int document = renumbered[this.documents[i]];
+                if (document >= 0) {
+                    this.documents[live] = document;
+                    this.frequencies[live] = this.frequencies[i];
+                    live++;
+                }
+            }
+            this.size = live;
+            if (live < this.documents.length / 2) {
+                this.documents = Arrays.copyOf(this.documents, live);
+                this.frequencies = Arrays.copyOf(this.frequencies, live);
+            }
+            return live;
+        }
+    }
+}
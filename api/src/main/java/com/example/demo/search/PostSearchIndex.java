@@ -0,0 +1,240 @@
+package com.example.demo.search;
+
+import com.example.demo.config.SearchProperties;
+import com.example.demo.domain.Post;
+import com.example.demo.repository.PostRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Full text index of the titles and contents of the posts.
+ * <p>
+ * The index is built in the background once the application is ready by streaming all the posts, and kept up to
+ * date by the handlers writing posts. Posts written while it is built are indexed right away and skipped by the build,
+ * the stream may return an older version of them. The application serves requests while the index is built, the
+ * searches only find the posts written since the start until it is done, see the {@code postSearchIndex} health.
+ * <p>
+ * The index holds at most {@code blog.search.max-postings} postings. Once they are used up, the build stops and the
+ * posts written are not indexed, the health reports the index as full and the skipped posts are counted.
+ */
+@Component
+@Slf4j
+public class PostSearchIndex implements HealthIndicator, MeterBinder, DisposableBean {
+
+    private final PostRepository posts;
+
+    private final EntityManager entityManager;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final SearchProperties properties;
+
+    // guards the switch from the current index to a rebuilt one
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile InvertedIndex index;
+
+    private InvertedIndex rebuilding;
+
+    private Set<Long> changedWhileRebuilding;
+
+    private final ExecutorService rebuilder;
+
+    // from the submission of a background build to its end
+    private volatile boolean rebuildPending;
+
+    // the last post written did not fit in the index
+    private volatile boolean full;
+
+    private final AtomicLong skipped = new AtomicLong();
+
+    public PostSearchIndex(PostRepository posts,
+                           EntityManager entityManager,
+                           PlatformTransactionManager transactionManager,
+                           SearchProperties properties) {
+        this.posts = posts;
+        this.entityManager = entityManager;
+        this.transactionManager = transactionManager;
+        this.properties = properties;
+        this.index = newIndex();
+        var threadFactory = new CustomizableThreadFactory("search-index-");
+        threadFactory.setDaemon(true);
+        this.rebuilder = Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    // the ready event, and the readiness of the application, do not wait for the build
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        this.rebuildPending = true;
+        this.rebuilder.execute(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Failed to build the search index", e);
+            } finally {
+                this.rebuildPending = false;
+            }
+        });
+    }
+
+    public void rebuild() {
+        var started = System.nanoTime();
+        this.lock.lock();
+        try {
+            this.rebuilding = newIndex();
+            this.changedWhileRebuilding = new HashSet<>();
+        } finally {
+            this.lock.unlock();
+        }
+
+        var transaction = new TransactionTemplate(this.transactionManager);
+        transaction.setReadOnly(true);
+        try {
+            transaction.executeWithoutResult(status -> {
+                try (Stream<Post> stream = this.posts.streamAll()) {
+                    var iterator = stream.iterator();
+                    boolean indexed = true;
+                    while (indexed && iterator.hasNext()) {
+                        var post = iterator.next();
+                        this.lock.lock();
+                        try {
+                            if (!this.changedWhileRebuilding.contains(post.getId())) {
+                                indexed = this.rebuilding.put(post.getId(), post.getTitle(), post.getContent());
+                            }
+                        } finally {
+                            this.lock.unlock();
+                        }
+                        this.entityManager.detach(post);
+                    }
+                    this.full = !indexed;
+                    if (!indexed) {
+                        this.skipped.incrementAndGet();
+                        log.warn("the search index is full, {} postings, the remaining posts are not indexed",
+                                this.rebuilding.postings());
+                    }
+                }
+            });
+
+            this.lock.lock();
+            try {
+                this.index = this.rebuilding;
+            } finally {
+                this.lock.unlock();
+            }
+            log.info("indexed {} posts with {} terms in {} ms", this.index.size(), this.index.terms(),
+                    (System.nanoTime() - started) / 1_000_000);
+        } finally {
+            this.lock.lock();
+            try {
+                this.rebuilding = null;
+                this.changedWhileRebuilding = null;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    public void put(Long id, String title, String content) {
+        this.lock.lock();
+        try {
+            boolean indexed = this.index.put(id, title, content);
+            if (this.rebuilding != null) {
+                indexed = this.rebuilding.put(id, title, content);
+                this.changedWhileRebuilding.add(id);
+            }
+            this.full = !indexed;
+            if (!indexed) {
+                this.skipped.incrementAndGet();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        this.lock.lock();
+        try {
+            this.index.remove(id);
+            if (this.rebuilding != null) {
+                this.rebuilding.remove(id);
+                this.changedWhileRebuilding.add(id);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public boolean isRebuilding() {
+        if (this.rebuildPending) {
+            return true;
+        }
+        this.lock.lock();
+        try {
+            return this.rebuilding != null;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // up while it is built, the searches work but miss the posts not indexed yet
+    @Override
+    public Health health() {
+        var index = this.index;
+        return Health.up()
+                .withDetail("rebuilding", isRebuilding())
+                .withDetail("full", this.full)
+                .withDetail("posts", index.size())
+                .withDetail("terms", index.terms())
+                .withDetail("postings", index.postings())
+                .withDetail("skippedPosts", this.skipped.get())
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("search.index.postings", this, searchIndex -> searchIndex.index.postings())
+                .description("Postings of the search index, bounded by blog.search.max-postings")
+                .register(registry);
+        FunctionCounter.builder("search.index.skipped", this.skipped, AtomicLong::get)
+                .description("Posts not indexed because the search index is full")
+                .register(registry);
+    }
+
+    private InvertedIndex newIndex() {
+        return new InvertedIndex(this.properties.getMaxTermsPerPost(), this.properties.getMaxPostings());
+    }
+
+    @Override
+    public void destroy() {
+        this.rebuilder.shutdownNow();
+    }
+
+    /**
+     * The ids of the posts containing all the words of the query, best matches first.
+     */
+    public List<Long> search(String query, int limit) {
+        return this.index.search(query, limit).stream().map(InvertedIndex.Hit::id).toList();
+    }
+}
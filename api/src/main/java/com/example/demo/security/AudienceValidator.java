@@ -12,15 +12,15 @@ import lombok.RequiredArgsConstructor;
  */
 @RequiredArgsConstructor(staticName = "of")
 public class AudienceValidator implements OAuth2TokenValidator<Jwt> {
+    static final OAuth2Error MISSING_AUDIENCE = new OAuth2Error("invalid_token", "The required audience is missing", null);
+
     private final String audience;
 
     public OAuth2TokenValidatorResult validate(Jwt jwt) {
-        OAuth2Error error = new OAuth2Error("invalid_token", "The required audience is missing", null);
-
         if (jwt.getAudience().contains(audience)) {
             return OAuth2TokenValidatorResult.success();
         }
 
-        return OAuth2TokenValidatorResult.failure(error);
+        return OAuth2TokenValidatorResult.failure(MISSING_AUDIENCE);
     }
 }
@@ -0,0 +1,139 @@
+package com.example.demo.security;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Caches the successfully decoded and validated tokens of the delegate {@link JwtDecoder}.
+ * <p>
+ * Entries are keyed by the SHA-256 digest of the raw token and never outlive the {@code exp} claim of the token,
+ * failed decodings are not cached. Concurrent misses of the same token wait for the first one, a token is verified
+ * once. The decoding runs on the calling thread, never under a lock of the cache. Bound to a registry, the cache is reported as the {@code jwt} cache.
+ */
+public class CachingJwtDecoder implements JwtDecoder, MeterBinder, DisposableBean {
+
+    private final JwtDecoder delegate;
+
+    private final AsyncCache<String, Jwt> cache;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maximumSize, Duration maximumTtl) {
+        this(delegate, maximumSize, maximumTtl, Clock.systemUTC());
+    }
+
+    CachingJwtDecoder(JwtDecoder delegate, long maximumSize, Duration maximumTtl, Clock clock) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry(maximumTtl, clock))
+                .recordStats()
+                .buildAsync();
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        // only the pending decoding is inserted under the map lock, a decoding may fetch keys
+        var decoding = new CompletableFuture<Jwt>();
+        var jwt = this.cache.get(digest(token), (key, executor) -> decoding);
+        if (jwt != decoding) {
+            return join(jwt);
+        }
+        try {
+            var decoded = this.delegate.decode(token);
+            decoding.complete(decoded);
+            return decoded;
+        } catch (RuntimeException | Error e) {
+            // removed from the cache, the waiting decodings fail the same way
+            decoding.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static Jwt join(CompletableFuture<Jwt> jwt) {
+        try {
+            return jwt.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, this.cache.synchronous(), "jwt");
+    }
+
+    // the delegate is not a bean of its own
+    @Override
+    public void destroy() throws Exception {
+        if (this.delegate instanceof DisposableBean disposable) {
+            disposable.destroy();
+        }
+    }
+
+    /**
+     * Hit, miss and eviction counters of the cache.
+     */
+    public CacheStats stats() {
+        return this.cache.synchronous().stats();
+    }
+
+    public long size() {
+        return this.cache.synchronous().estimatedSize();
+    }
+
+    private static String digest(String token) {
+        try {
+            var hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record TokenExpiry(Duration maximumTtl, Clock clock) implements Expiry<String, Jwt> {
+
+        @Override
+        public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+            Instant expiresAt = jwt.getExpiresAt();
+            if (expiresAt == null) {
+                return maximumTtl.toNanos();
+            }
+            var remaining = Duration.between(clock.instant(), expiresAt);
+            if (remaining.isNegative()) {
+                return 0;
+            }
+            return remaining.compareTo(maximumTtl) < 0 ? remaining.toNanos() : maximumTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.security;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSetCacheRefreshEvaluator;
+import com.nimbusds.jose.jwk.source.JWKSetSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestOperations;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.text.ParseException;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fetches the JWK set of an OIDC issuer.
+ * <p>
+ * The {@code jwks_uri} is discovered from the issuer metadata on the first key lookup instead of at startup,
+ * a failed discovery is retried on the next lookup. Caching, refreshing and outage tolerance are left to the
+ * {@link com.nimbusds.jose.jwk.source.JWKSourceBuilder} wrapping this source.
+ */
+public class IssuerJwkSetSource implements JWKSetSource<SecurityContext> {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> METADATA_TYPE = new ParameterizedTypeReference<>() {
+    };
+
+    private final String issuer;
+
+    private final RestOperations rest;
+
+    // not a monitor, the discovery does blocking I/O and must not pin a virtual thread
+    private final Lock discoveryLock = new ReentrantLock();
+
+    private volatile URI jwkSetUri;
+
+    public IssuerJwkSetSource(String issuer, RestOperations rest) {
+        this.issuer = issuer;
+        this.rest = rest;
+    }
+
+    @Override
+    public JWKSet getJWKSet(JWKSetCacheRefreshEvaluator refreshEvaluator, long currentTime, SecurityContext context)
+            throws KeySourceException {
+        try {
+            return JWKSet.parse(this.rest.getForObject(jwkSetUri(), String.class));
+        } catch (RestClientException | ParseException | IllegalArgumentException e) {
+            throw new KeySourceException("Couldn't retrieve the JWK set of " + this.issuer + ": " + e.getMessage(), e);
+        }
+    }
+
+    private URI jwkSetUri() {
+        var uri = this.jwkSetUri;
+        if (uri == null) {
+            this.discoveryLock.lock();
+            try {
+                uri = this.jwkSetUri;
+                if (uri == null) {
+                    uri = this.jwkSetUri = discover();
+                }
+            } finally {
+                this.discoveryLock.unlock();
+            }
+        }
+        return uri;
+    }
+
+    private URI discover() {
+        var metadataUri = UriComponentsBuilder.fromUriString(this.issuer)
+                .path("/.well-known/openid-configuration")
+                .build()
+                .toUri();
+        var metadata = this.rest.exchange(metadataUri, HttpMethod.GET, null, METADATA_TYPE).getBody();
+        if (metadata == null || !this.issuer.equals(metadata.get("issuer"))) {
+            throw new IllegalArgumentException("The issuer in the metadata of " + metadataUri + " does not match " + this.issuer);
+        }
+        if (!(metadata.get("jwks_uri") instanceof String jwksUri)) {
+            throw new IllegalArgumentException("The metadata of " + metadataUri + " has no jwks_uri");
+        }
+        return URI.create(jwksUri);
+    }
+
+    @Override
+    public void close() {
+    }
+}
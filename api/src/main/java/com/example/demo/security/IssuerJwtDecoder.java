@@ -0,0 +1,125 @@
+package com.example.demo.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Decodes the tokens of several trusted issuers, each with its own {@link JwtDecoder}.
+ * <p>
+ * The {@code iss} claim is read from the payload without parsing the rest of the token, the decoder of the issuer
+ * does the one full parse and the signature verification. The decoders are built on the first token of their
+ * issuer, nothing is built or fetched at startup. They are kept in a bounded cache, a decoder evicted after being
+ * idle or for a more recently used one is closed and built again on the next token of its issuer. Bound to a
+ * registry, the cache is reported as the {@code jwt.issuers} cache.
+ */
+@Slf4j
+public class IssuerJwtDecoder implements JwtDecoder, MeterBinder, DisposableBean {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final Set<String> trustedIssuers;
+
+    private final LoadingCache<String, Decoder> decoders;
+
+    public IssuerJwtDecoder(Collection<String> trustedIssuers,
+                            Function<String, Decoder> decoderFactory,
+                            long maximumSize,
+                            Duration idleTimeout) {
+        this.trustedIssuers = Set.copyOf(trustedIssuers);
+        this.decoders = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(idleTimeout)
+                .removalListener((String issuer, Decoder decoder, RemovalCause cause) -> close(issuer, decoder))
+                // closed right away, also on shutdown
+                .executor(Runnable::run)
+                .recordStats()
+                .build(decoderFactory::apply);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        var issuer = issuer(token);
+        if (!this.trustedIssuers.contains(issuer)) {
+            // not echoed, the claim is not verified yet
+            throw new BadJwtException("The iss claim is not a trusted issuer");
+        }
+        return this.decoders.get(issuer).decoder().decode(token);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, this.decoders, "jwt.issuers");
+    }
+
+    @Override
+    public void destroy() {
+        this.decoders.invalidateAll();
+    }
+
+    /**
+     * Reads the {@code iss} claim of a compact JWS, the payload is decoded and scanned up to the claim.
+     */
+    static String issuer(String token) {
+        int payloadStart = token.indexOf('.') + 1;
+        int payloadEnd = payloadStart == 0 ? -1 : token.indexOf('.', payloadStart);
+        if (payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0) {
+            throw new BadJwtException("Malformed token");
+        }
+
+        try (var parser = JSON.createParser(Base64.getUrlDecoder().decode(token.substring(payloadStart, payloadEnd)))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new BadJwtException("Malformed payload");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var claim = parser.currentName();
+                var value = parser.nextToken();
+                if ("iss".equals(claim)) {
+                    if (value == JsonToken.VALUE_STRING) {
+                        return parser.getText();
+                    }
+                    break;
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new BadJwtException("Malformed payload", e);
+        }
+        throw new BadJwtException("Missing the iss claim");
+    }
+
+    private static void close(String issuer, Decoder decoder) {
+        if (decoder == null || decoder.resources() == null) {
+            return;
+        }
+        try {
+            decoder.resources().close();
+        } catch (Exception e) {
+            log.warn("Failed to close the decoder of {}", issuer, e);
+        }
+    }
+
+    /**
+     * The decoder of an issuer, and what it holds open, eg. the refreshing JWK set, closed with its eviction.
+     */
+    public record Decoder(JwtDecoder decoder, AutoCloseable resources) {
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.demo.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the request rate of every authenticated subject and the number of writes in flight, the rejected requests
+ * get a {@code 429 Too Many Requests} with a {@code Retry-After} header.
+ * <p>
+ * Must run after the bearer token authentication. Anonymous requests, ie. the public reads, pass through untouched.
+ * The buckets of the subjects are kept in a Caffeine cache, looked up without locking and dropped when idle.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public static final String METRIC_NAME = "http.server.requests.rejected";
+
+    private final Cache<String, TokenBucket> buckets;
+
+    private final int burst;
+
+    private final long intervalNanos;
+
+    private final Semaphore writes;
+
+    private final LongSupplier nanoTime;
+
+    private final Counter rateLimited;
+
+    private final Counter writesLimited;
+
+    public RateLimitFilter(int burst, double requestsPerSecond, Duration idleTimeout, long maximumSubjects,
+                           int maxConcurrentWrites, MeterRegistry registry) {
+        this(burst, requestsPerSecond, idleTimeout, maximumSubjects, maxConcurrentWrites, registry, System::nanoTime);
+    }
+
+    RateLimitFilter(int burst, double requestsPerSecond, Duration idleTimeout, long maximumSubjects,
+                    int maxConcurrentWrites, MeterRegistry registry, LongSupplier nanoTime) {
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(idleTimeout)
+                .maximumSize(maximumSubjects)
+                .build();
+        this.burst = burst;
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        this.writes = new Semaphore(maxConcurrentWrites);
+        this.nanoTime = nanoTime;
+        this.rateLimited = rejected(registry, "rate");
+        this.writesLimited = rejected(registry, "concurrent_writes");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken || !authentication.isAuthenticated()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // the tokens without a subject share a bucket
+        var subject = Objects.requireNonNullElse(authentication.getName(), "");
+        long waitNanos = this.buckets.get(subject, s -> new TokenBucket(this.nanoTime.getAsLong()))
+                .tryAcquire(this.nanoTime.getAsLong(), this.intervalNanos, this.burst);
+        if (waitNanos > 0) {
+            this.rateLimited.increment();
+            reject(response, waitNanos);
+            return;
+        }
+
+        if (!isWrite(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!this.writes.tryAcquire()) {
+            this.writesLimited.increment();
+            reject(response, TimeUnit.SECONDS.toNanos(1));
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            this.writes.release();
+        }
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        var method = request.getMethod();
+        return !HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method) && !HttpMethod.OPTIONS.matches(method);
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) {
+        var seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+    }
+
+    private static Counter rejected(MeterRegistry registry, String reason) {
+        return Counter.builder(METRIC_NAME)
+                .description("Requests rejected by the rate limits")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    /**
+     * A token bucket as a generic cell rate algorithm, the whole state is the theoretical arrival time of the next
+     * request, updated with a compare-and-set.
+     */
+    static final class TokenBucket {
+
+        private final AtomicLong arrival;
+
+        TokenBucket(long now) {
+            this.arrival = new AtomicLong(now);
+        }
+
+        /**
+         * @return 0 when the request is allowed, otherwise how long to wait in nanoseconds
+         */
+        long tryAcquire(long now, long intervalNanos, int burst) {
+            long tolerance = intervalNanos * (burst - 1);
+            while (true) {
+                long arrival = this.arrival.get();
+                long next = Math.max(arrival, now);
+                long wait = next - tolerance - now;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (this.arrival.compareAndSet(arrival, next + intervalNanos)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
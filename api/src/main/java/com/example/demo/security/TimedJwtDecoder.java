@@ -0,0 +1,97 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+
+import java.text.ParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the decoding, signature verification and validation of the delegate {@link JwtDecoder}.
+ * <p>
+ * The {@value #METRIC_NAME} timer is tagged with the issuer the decoder trusts, the outcome and the reason of a
+ * failure. The timers are created once per reason and reused, recording a decoding allocates nothing.
+ */
+public class TimedJwtDecoder implements JwtDecoder {
+
+    public static final String METRIC_NAME = "auth.jwt.decode";
+
+    private final JwtDecoder delegate;
+
+    private final MeterRegistry registry;
+
+    private final String issuer;
+
+    private final Timer success;
+
+    private final Map<String, Timer> failures = new ConcurrentHashMap<>();
+
+    public TimedJwtDecoder(JwtDecoder delegate, MeterRegistry registry, String issuer) {
+        this.delegate = delegate;
+        this.registry = registry;
+        this.issuer = issuer;
+        this.success = timer("success", "none");
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        long start = this.registry.config().clock().monotonicTime();
+        try {
+            var jwt = this.delegate.decode(token);
+            this.success.record(this.registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+            return jwt;
+        } catch (JwtException e) {
+            var reason = reason(e);
+            var failure = this.failures.get(reason);
+            if (failure == null) {
+                failure = this.failures.computeIfAbsent(reason, r -> timer("failure", r));
+            }
+            failure.record(this.registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Timer timer(String outcome, String reason) {
+        return Timer.builder(METRIC_NAME)
+                .description("Decoding and validation of the bearer tokens")
+                .tag("issuer", this.issuer)
+                .tag("outcome", outcome)
+                .tag("reason", reason)
+                .register(this.registry);
+    }
+
+    /**
+     * A low cardinality reason of a failed decoding, the messages of the exceptions contain token details.
+     */
+    static String reason(JwtException e) {
+        if (e instanceof JwtValidationException validation) {
+            for (var error : validation.getErrors()) {
+                if (error == AudienceValidator.MISSING_AUDIENCE) {
+                    return "audience";
+                }
+                var description = error.getDescription();
+                if (description != null && description.startsWith("Jwt expired")) {
+                    return "expired";
+                }
+                if (description != null && description.startsWith("Jwt used before")) {
+                    return "not_yet_valid";
+                }
+                if (description != null && description.startsWith("The iss claim")) {
+                    return "issuer";
+                }
+            }
+            return "invalid_claims";
+        }
+        if (e instanceof BadJwtException) {
+            return e.getCause() instanceof ParseException ? "malformed" : "rejected";
+        }
+        return "error";
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.demo.web;
+
+import com.example.demo.domain.Comment;
+import com.example.demo.repository.CommentRepository;
+import com.example.demo.repository.PostRepository;
+import jakarta.servlet.ServletException;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.demo.web.PostHandler.DEFAULT_PAGE_SIZE;
+import static com.example.demo.web.PostHandler.MAX_PAGE_SIZE;
+import static org.springframework.web.servlet.function.ServerResponse.*;
+
+/**
+ * The comments of the posts, the number of comments of a post is counted with the post, see
+ * {@link CommentRepository#addToPost}. A new count is published to the {@link PostChangeFeed} once committed.
+ */
+@Component
+@RequiredArgsConstructor
+public class CommentHandler {
+
+    private final CommentRepository comments;
+
+    private final PostRepository posts;
+
+    private final Validator validator;
+
+    private final PostChangeFeed changes;
+
+    public ServerResponse all(ServerRequest req) {
+        var postId = Long.valueOf(req.pathVariable("id"));
+        int size;
+        Long after;
+        try {
+            size = pageSize(req);
+            after = req.param("cursor").map(Long::valueOf).orElse(null);
+        } catch (IllegalArgumentException e) {
+            return badRequest().build();
+        }
+
+        // fetch one extra row to know whether there is a next page
+        var rows = this.comments.findByPostId(postId, after, Limit.of(size + 1));
+        if (rows.isEmpty() && after == null && !this.posts.existsById(postId)) {
+            return notFound().build();
+        }
+        var content = rows.size() > size ? rows.subList(0, size) : rows;
+        var nextCursor = rows.size() > size ? String.valueOf(content.get(size - 1).getId()) : null;
+        return ok().body(new CursorPage<>(content, nextCursor));
+    }
+
+    /**
+     * The first comments of several posts at once, {@code GET /posts/comments?ids=1,2,3}, keyed by post id. The
+     * posts without comments are left out.
+     */
+    public ServerResponse firstOfPosts(ServerRequest req) {
+        int size;
+        List<Long> ids;
+        try {
+            size = pageSize(req);
+            ids = req.params().getOrDefault("ids", List.of()).stream()
+                    .flatMap(param -> Arrays.stream(param.split(",")))
+                    .map(String::trim)
+                    .map(Long::valueOf)
+                    .distinct()
+                    .toList();
+        } catch (IllegalArgumentException e) {
+            return badRequest().build();
+        }
+        if (ids.isEmpty() || ids.size() > MAX_PAGE_SIZE) {
+            return badRequest().build();
+        }
+
+        Map<Long, List<Comment>> comments = new LinkedHashMap<>();
+        this.comments.findFirstByPostIds(ids, size)
+                .forEach(comment -> comments.computeIfAbsent(comment.getPostId(), id -> new ArrayList<>()).add(comment));
+        return ok().body(comments);
+    }
+
+    public ServerResponse create(ServerRequest req) throws ServletException, IOException {
+        var postId = Long.valueOf(req.pathVariable("id"));
+        var data = req.body(Comment.class);
+        if (!this.validator.validate(data).isEmpty()) {
+            return badRequest().build();
+        }
+
+        var saved = this.comments.addToPost(postId, Comment.builder().content(data.getContent()).build());
+        if (saved.isEmpty()) {
+            return notFound().build();
+        }
+        publishCommentCount(postId);
+        return created(URI.create("/posts/" + postId + "/comments/" + saved.get().getId())).build();
+    }
+
+    public ServerResponse delete(ServerRequest req) {
+        var postId = Long.valueOf(req.pathVariable("id"));
+        var id = Long.valueOf(req.pathVariable("commentId"));
+        if (!this.comments.removeFromPost(postId, id)) {
+            return notFound().build();
+        }
+        publishCommentCount(postId);
+        return noContent().build();
+    }
+
+    // read after the commit, the concurrent comments of the post are counted too
+    private void publishCommentCount(Long postId) {
+        this.comments.findCommentCount(postId).ifPresent(count -> this.changes.commentCountUpdated(postId, count));
+    }
+
+    private static int pageSize(ServerRequest req) {
+        return req.param("size")
+                .map(Integer::valueOf)
+                .map(s -> Math.max(1, Math.min(s, MAX_PAGE_SIZE)))
+                .orElse(DEFAULT_PAGE_SIZE);
+    }
+}
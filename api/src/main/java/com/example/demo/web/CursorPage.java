@@ -0,0 +1,9 @@
+package com.example.demo.web;
+
+import java.util.List;
+
+/**
+ * A page of a keyset paginated list, {@code nextCursor} is absent on the last page.
+ */
+public record CursorPage<T>(List<T> content, String nextCursor) {
+}
@@ -0,0 +1,281 @@
+package com.example.demo.web;
+
+import com.example.demo.config.IdempotencyProperties;
+import com.example.demo.domain.IdempotencyKey;
+import com.example.demo.repository.IdempotencyKeyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.springframework.web.servlet.function.ServerResponse.*;
+
+/**
+ * Answers a request retried with the same {@code Idempotency-Key} header with the response of the first one instead
+ * of running it again.
+ * <p>
+ * A key is scoped to the subject of the token and recorded with the status and the {@code Location} of the response
+ * and a fingerprint of the request, a key reused for another request is answered 422. A retry arriving while the
+ * first request runs waits for it, and gets 409 when it takes longer than {@code blog.idempotency.wait-timeout}.
+ * A failed request is not recorded, its retry runs again.
+ * <p>
+ * The keys are kept in a bounded and expiring cache. With {@code blog.idempotency.table}, they are also inserted in
+ * the {@code idempotency_keys} table in the transaction of the request, first, so a retry reaching another node is
+ * answered from the table and a duplicate running on another node at the same time waits on the primary key.
+ */
+@Component
+@Slf4j
+public class IdempotentRequests implements MeterBinder, DisposableBean {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    static final String REPLAYED = "Idempotent-Replayed";
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyProperties properties;
+
+    private final IdempotencyKeyRepository keys;
+
+    private final TransactionTemplate transaction;
+
+    private final Cache<String, Flight> flights;
+
+    private final AtomicLong replays = new AtomicLong();
+
+    private final ScheduledExecutorService purge;
+
+    public IdempotentRequests(IdempotencyProperties properties,
+                              IdempotencyKeyRepository keys,
+                              PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.keys = keys;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.flights = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumKeys())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+
+        if (properties.isTable()) {
+            var purgeThread = new CustomizableThreadFactory("idempotency-purge-");
+            purgeThread.setDaemon(true);
+            this.purge = Executors.newSingleThreadScheduledExecutor(purgeThread);
+            var interval = properties.getPurgeInterval().toMillis();
+            this.purge.scheduleWithFixedDelay(this::purgeExpired, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.purge = null;
+        }
+    }
+
+    /**
+     * Runs a request creating a resource, at most once per {@code Idempotency-Key}.
+     *
+     * @param fingerprint of the request, see {@link #fingerprint}
+     * @param write       creates the resource, in the transaction recording the key
+     * @param location    of the created resource
+     * @param committed   called once the resource is created, not when the response is replayed
+     */
+    public <T> ServerResponse create(ServerRequest req,
+                                     String fingerprint,
+                                     Supplier<T> write,
+                                     Function<T, URI> location,
+                                     Consumer<T> committed) {
+        var header = req.headers().firstHeader(IDEMPOTENCY_KEY);
+        if (header == null) {
+            var value = write.get();
+            committed.accept(value);
+            return created(location.apply(value)).build();
+        }
+        if (header.isBlank() || header.length() > MAX_KEY_LENGTH) {
+            return badRequest().build();
+        }
+
+        var key = req.principal().map(Principal::getName).orElse("") + ":" + header;
+        while (true) {
+            var flight = new Flight(fingerprint, new CompletableFuture<>());
+            var existing = this.flights.asMap().putIfAbsent(key, flight);
+            if (existing == null) {
+                return run(key, flight, write, location, committed);
+            }
+            if (!existing.fingerprint().equals(fingerprint)) {
+                return status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+            }
+            try {
+                return replay(existing.response().get(this.properties.getWaitTimeout().toMillis(), TimeUnit.MILLISECONDS));
+            } catch (TimeoutException e) {
+                return status(HttpStatus.CONFLICT).header(HttpHeaders.RETRY_AFTER, "1").build();
+            } catch (ExecutionException e) {
+                // the first request failed and is forgotten, this one runs again
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            }
+        }
+    }
+
+    /**
+     * A digest of the parts of a request body.
+     */
+    public static String fingerprint(String... parts) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            for (var part : parts) {
+                if (part != null) {
+                    digest.update(part.getBytes(StandardCharsets.UTF_8));
+                }
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, this.flights, "idempotency");
+        FunctionCounter.builder("idempotency.replays", this.replays, AtomicLong::get)
+                .description("Requests answered with the recorded response of their Idempotency-Key")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        if (this.purge != null) {
+            this.purge.shutdownNow();
+        }
+    }
+
+    private <T> ServerResponse run(String key,
+                                   Flight flight,
+                                   Supplier<T> write,
+                                   Function<T, URI> location,
+                                   Consumer<T> committed) {
+        Written<T> written;
+        try {
+            written = this.properties.isTable() ? writeRecorded(key, flight, write, location) : write(write, location);
+        } catch (RuntimeException | Error e) {
+            this.flights.asMap().remove(key, flight);
+            flight.response().completeExceptionally(e);
+            throw e;
+        }
+
+        if (written.value() == null) {
+            // recorded by another node, or before a restart
+            this.flights.asMap().replace(key, flight, new Flight(written.fingerprint(), CompletableFuture.completedFuture(written.response())));
+            // the retries waiting for this flight compare their fingerprint to the recorded one
+            flight.response().completeExceptionally(new IllegalStateException("Recorded by another request"));
+            if (!written.fingerprint().equals(flight.fingerprint())) {
+                return status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+            }
+            return replay(written.response());
+        }
+
+        // recorded before the side effects, a failure of those does not run the request again
+        flight.response().complete(written.response());
+        committed.accept(written.value());
+        return created(URI.create(written.response().location())).build();
+    }
+
+    private static <T> Written<T> write(Supplier<T> write, Function<T, URI> location) {
+        var value = write.get();
+        return new Written<>(value, null, new Recorded(HttpStatus.CREATED.value(), location.apply(value).toString()));
+    }
+
+    private <T> Written<T> writeRecorded(String key, Flight flight, Supplier<T> write, Function<T, URI> location) {
+        for (int attempt = 0; ; attempt++) {
+            // in a read-write transaction, on the primary database
+            var recorded = this.transaction.execute(status -> this.keys.findRecordedSince(key, expiredBefore()));
+            if (recorded.isPresent()) {
+                var row = recorded.get();
+                return new Written<>(null, row.getFingerprint(), new Recorded(row.getStatus(), row.getLocation()));
+            }
+
+            try {
+                return this.transaction.execute(status -> {
+                    this.keys.deleteExpired(key, expiredBefore());
+                    // always inserted, see IdempotencyKey#isNew: waits for a duplicate inserted by another node, and
+                    // fails on the primary key once it is committed, or when it was committed since the lookup above
+                    var row = this.keys.saveAndFlush(IdempotencyKey.builder()
+                            .key(key)
+                            .fingerprint(flight.fingerprint())
+                            .status(HttpStatus.CREATED.value())
+                            .createdDate(LocalDateTime.now())
+                            .build());
+                    var value = write.get();
+                    row.setLocation(location.apply(value).toString());
+                    return new Written<>(value, null, new Recorded(row.getStatus(), row.getLocation()));
+                });
+            } catch (DataIntegrityViolationException e) {
+                if (attempt > 0) {
+                    throw e;
+                }
+                log.debug("Idempotency-Key {} recorded concurrently", key, e);
+            }
+        }
+    }
+
+    private ServerResponse replay(Recorded response) {
+        this.replays.incrementAndGet();
+        var builder = status(response.status()).header(REPLAYED, "true");
+        if (response.location() != null) {
+            builder.header(HttpHeaders.LOCATION, response.location());
+        }
+        return builder.build();
+    }
+
+    private LocalDateTime expiredBefore() {
+        return LocalDateTime.now().minus(this.properties.getTtl());
+    }
+
+    private void purgeExpired() {
+        try {
+            var deleted = this.keys.deleteCreatedBefore(expiredBefore());
+            log.debug("Deleted {} expired idempotency keys", deleted);
+        } catch (RuntimeException e) {
+            log.warn("Failed to delete the expired idempotency keys", e);
+        }
+    }
+
+    private record Flight(String fingerprint, CompletableFuture<Recorded> response) {
+    }
+
+    private record Recorded(int status, String location) {
+    }
+
+    // the value is null when the response was recorded by another request, with its fingerprint
+    private record Written<T>(T value, String fingerprint, Recorded response) {
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.demo.web;
+
+import com.example.demo.domain.Post;
+import com.example.demo.repository.PostRepository;
+import com.example.demo.repository.ReadYourWrites;
+import com.example.demo.search.PostSearchIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.servlet.ServletException;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.springframework.web.servlet.function.ServerResponse.ok;
+import static org.springframework.web.servlet.function.ServerResponse.status;
+
+/**
+ * Creates and updates posts in bulk, items without an id are created and the others are updated.
+ * <p>
+ * The valid items are written in chunks, one transaction per chunk, relying on the Hibernate JDBC batching and
+ * the pooled sequence of the post ids. A failed chunk is rolled back without affecting the others. A chunk failing on
+ * posts updated concurrently is retried once without them, they get a 409.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class PostBatchHandler {
+
+    static final int MAX_ITEMS = 10_000;
+
+    // a multiple of hibernate.jdbc.batch_size, the persistence context is cleared after each chunk
+    static final int CHUNK_SIZE = 500;
+
+    private static final ParameterizedTypeReference<List<Post>> POST_LIST_TYPE = new ParameterizedTypeReference<>() {
+    };
+
+    private final EntityManager entityManager;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final Validator validator;
+
+    private final CacheManager cacheManager;
+
+    private final PostSearchIndex searchIndex;
+
+    private final ReadYourWrites readYourWrites;
+
+    private final PostChangeFeed changes;
+
+    public ServerResponse batch(ServerRequest req) throws ServletException, IOException {
+        var items = req.body(POST_LIST_TYPE);
+        if (items.size() > MAX_ITEMS) {
+            return status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+
+        var results = new BatchItemResult[items.size()];
+        var valid = new ArrayList<Integer>();
+        for (int i = 0; i < items.size(); i++) {
+            var violations = this.validator.validate(items.get(i));
+            if (violations.isEmpty()) {
+                valid.add(i);
+            } else {
+                var errors = violations.stream().map(v -> v.getPropertyPath() + " " + v.getMessage()).sorted().toList();
+                results[i] = BatchItemResult.failed(i, HttpStatus.BAD_REQUEST, errors);
+            }
+        }
+
+        var transaction = new TransactionTemplate(this.transactionManager);
+        for (int from = 0; from < valid.size(); from += CHUNK_SIZE) {
+            var chunk = valid.subList(from, Math.min(from + CHUNK_SIZE, valid.size()));
+            // the updated posts are read on the primary from now on, the created ones once they have an id
+            chunk.stream().map(items::get).map(Post::getId).filter(Objects::nonNull).forEach(this.readYourWrites::written);
+            var remaining = new ArrayList<>(chunk);
+            for (int attempt = 0; ; attempt++) {
+                var read = new HashMap<Long, Long>();
+                var created = new HashMap<Integer, Post>();
+                try {
+                    var written = transaction.execute(status -> writeChunk(items, remaining, read, created));
+                    created.forEach(items::set);
+                    written.forEach(result -> results[result.index()] = result);
+                    written.stream().map(BatchItemResult::id).filter(Objects::nonNull).forEach(this.readYourWrites::written);
+                    evict(written);
+                    index(items, written);
+                    publish(items, written);
+                    break;
+                } catch (OptimisticLockException | OptimisticLockingFailureException e) {
+                    // updated or deleted between the read and the flush of the chunk
+                    var conflicts = conflicts(items, remaining, read);
+                    log.debug("concurrent updates of the batch items {}", conflicts.keySet(), e);
+                    conflicts.forEach((i, result) -> results[i] = result);
+                    remaining.removeAll(conflicts.keySet());
+                    if (attempt > 0 || conflicts.isEmpty()) {
+                        log.warn("failed to write the posts of the batch items {} to {}", chunk.get(0), chunk.get(chunk.size() - 1), e);
+                        remaining.forEach(i -> results[i] = BatchItemResult.failed(i, HttpStatus.INTERNAL_SERVER_ERROR, List.of("rolled back")));
+                        break;
+                    }
+                    if (remaining.isEmpty()) {
+                        break;
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("failed to write the posts of the batch items {} to {}", chunk.get(0), chunk.get(chunk.size() - 1), e);
+                    remaining.forEach(i -> results[i] = BatchItemResult.failed(i, HttpStatus.INTERNAL_SERVER_ERROR, List.of("rolled back")));
+                    break;
+                }
+            }
+        }
+
+        return ok().body(Arrays.asList(results));
+    }
+
+    /**
+     * Writes the items of a chunk, the items are left untouched until it is committed.
+     *
+     * @param read    filled with the versions of the updated posts, as read
+     * @param created filled with the created posts, by item index
+     */
+    private List<BatchItemResult> writeChunk(List<Post> items, List<Integer> chunk, Map<Long, Long> read, Map<Integer, Post> created) {
+        var ids = chunk.stream().map(items::get).map(Post::getId).filter(id -> id != null).toList();
+        Map<Long, Post> existing = ids.isEmpty() ? new HashMap<>() : this.entityManager
+                .createQuery("select p from Post p where p.id in :ids", Post.class)
+                .setParameter("ids", ids)
+                .getResultStream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+
+        var results = new ArrayList<BatchItemResult>(chunk.size());
+        for (var index : chunk) {
+            var item = items.get(index);
+            if (item.getId() == null) {
+                var post = Post.builder().title(item.getTitle()).content(item.getContent()).build();
+                this.entityManager.persist(post);
+                created.put(index, post);
+                continue;
+            }
+
+            var post = existing.get(item.getId());
+            if (post == null) {
+                results.add(BatchItemResult.failed(index, HttpStatus.NOT_FOUND, List.of("post not found")));
+            } else if (item.getVersion() != null && !item.getVersion().equals(post.getVersion())) {
+                results.add(BatchItemResult.failed(index, HttpStatus.CONFLICT, List.of("version mismatch")));
+            } else {
+                read.put(post.getId(), post.getVersion());
+                post.setTitle(item.getTitle());
+                post.setContent(item.getContent());
+                results.add(BatchItemResult.of(index, HttpStatus.NO_CONTENT, post.getId()));
+            }
+        }
+
+        this.entityManager.flush();
+        this.entityManager.clear();
+
+        created.forEach((index, post) -> results.add(BatchItemResult.of(index, HttpStatus.CREATED, post.getId())));
+        return results;
+    }
+
+    // the updated items whose post has another version than the one read by the failed chunk, or is gone
+    private Map<Integer, BatchItemResult> conflicts(List<Post> items, List<Integer> chunk, Map<Long, Long> read) {
+        var conflicts = new HashMap<Integer, BatchItemResult>();
+        if (read.isEmpty()) {
+            return conflicts;
+        }
+        var transaction = new TransactionTemplate(this.transactionManager);
+        transaction.setReadOnly(true);
+        Map<Long, Long> current = transaction.execute(status -> this.entityManager
+                .createQuery("select p.id, p.version from Post p where p.id in :ids", Object[].class)
+                .setParameter("ids", read.keySet())
+                .getResultStream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1])));
+        for (var index : chunk) {
+            var id = items.get(index).getId();
+            if (id == null || !read.containsKey(id)) {
+                continue;
+            }
+            if (!current.containsKey(id)) {
+                conflicts.put(index, BatchItemResult.failed(index, HttpStatus.NOT_FOUND, List.of("post not found")));
+            } else if (!Objects.equals(current.get(id), read.get(id))) {
+                conflicts.put(index, BatchItemResult.failed(index, HttpStatus.CONFLICT, List.of("updated concurrently")));
+            }
+        }
+        return conflicts;
+    }
+
+    private void evict(List<BatchItemResult> written) {
+        var cache = this.cacheManager.getCache(PostRepository.POSTS_CACHE);
+        if (cache != null) {
+            written.stream()
+                    .filter(result -> result.id() != null)
+                    .forEach(result -> cache.evict(result.id()));
+        }
+    }
+
+    private void index(List<Post> items, List<BatchItemResult> written) {
+        written.stream()
+                .filter(result -> result.id() != null)
+                .forEach(result -> {
+                    var item = items.get(result.index());
+                    this.searchIndex.put(result.id(), item.getTitle(), item.getContent());
+                });
+    }
+
+    private void publish(List<Post> items, List<BatchItemResult> written) {
+        written.stream()
+                .filter(result -> result.id() != null)
+                .forEach(result -> {
+                    var item = items.get(result.index());
+                    if (result.status() == HttpStatus.CREATED.value()) {
+                        this.changes.created(item);
+                    } else {
+                        this.changes.updated(result.id(), null, item.getTitle());
+                    }
+                });
+    }
+
+    /**
+     * Outcome of a batch item, {@code index} is its position in the request.
+     */
+    public record BatchItemResult(int index, int status, Long id, String location, List<String> errors) {
+
+        static BatchItemResult of(int index, HttpStatus status, Long id) {
+            return new BatchItemResult(index, status.value(), id, "/posts/" + id, null);
+        }
+
+        static BatchItemResult failed(int index, HttpStatus status, List<String> errors) {
+            return new BatchItemResult(index, status.value(), null, null, errors);
+        }
+    }
+}
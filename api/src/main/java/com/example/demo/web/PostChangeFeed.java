@@ -0,0 +1,306 @@
+package com.example.demo.web;
+
+import com.example.demo.config.ChangeFeedProperties;
+import com.example.demo.domain.Post;
+import com.example.demo.domain.PostSummary;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.springframework.web.servlet.function.ServerResponse.status;
+
+/**
+ * Server-sent events of the posts created, updated and deleted, a client keeps its post list up to date from them
+ * instead of polling {@code GET /posts}.
+ * <p>
+ * The handlers publish a change once it is committed. Every subscriber gets it through a bounded buffer drained by
+ * a few dispatch threads, a subscriber falling further behind is disconnected and resumes from its
+ * {@code Last-Event-ID}. The latest changes are kept for the resuming subscribers, a subscriber resuming from an
+ * older change gets a {@code reset} event and reloads the list instead.
+ */
+@Component
+@Slf4j
+public class PostChangeFeed implements MeterBinder, DisposableBean {
+
+    static final String CREATED = "created";
+    static final String UPDATED = "updated";
+    static final String DELETED = "deleted";
+    static final String RESET = "reset";
+
+    private static final Change RESET_CHANGE = new Change(-1, null, RESET, null);
+
+    private static final Change HEARTBEAT = new Change(-1, null, null, null);
+
+    private final ChangeFeedProperties properties;
+
+    // a change is serialized once for all the subscribers, on one line
+    private final ObjectWriter writer;
+
+    // the ids restart with the application, a subscriber resuming from another run gets a reset
+    private final String run = Long.toString(System.currentTimeMillis(), 36);
+
+    // orders the changes, and the replay of a new subscriber before the changes published after it
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final ArrayDeque<Change> recent;
+
+    private long sequence;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService dispatcher;
+
+    private final ScheduledExecutorService heartbeat;
+
+    private final AtomicLong disconnected = new AtomicLong();
+
+    public PostChangeFeed(ChangeFeedProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.writer = objectMapper.writerFor(PostSummary.class).without(SerializationFeature.INDENT_OUTPUT);
+        this.recent = new ArrayDeque<>(properties.getReplaySize());
+
+        var dispatchThreads = new CustomizableThreadFactory("post-changes-");
+        dispatchThreads.setDaemon(true);
+        this.dispatcher = Executors.newFixedThreadPool(properties.getDispatchThreads(), dispatchThreads);
+
+        var heartbeatThread = new CustomizableThreadFactory("post-changes-heartbeat-");
+        heartbeatThread.setDaemon(true);
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(heartbeatThread);
+        var interval = properties.getHeartbeat().toMillis();
+        this.heartbeat.scheduleWithFixedDelay(
+                () -> this.subscribers.forEach(Subscriber::heartbeat), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void created(Post post) {
+        publish(CREATED, PostSummary.of(post));
+    }
+
+    /**
+     * @param version the version after the update, {@code null} when unknown
+     */
+    public void updated(Long id, Long version, String title) {
+        publish(UPDATED, new PostSummary(id, version, title, null, null, null, null));
+    }
+
+    /**
+     * The comments of a post changed, an {@code updated} change with the number of comments only, the version of the
+     * post is unchanged.
+     */
+    public void commentCountUpdated(Long id, long commentCount) {
+        publish(UPDATED, new PostSummary(id, null, null, null, null, null, commentCount));
+    }
+
+    public void deleted(Long id) {
+        publish(DELETED, new PostSummary(id, null, null, null, null, null, null));
+    }
+
+    public ServerResponse subscribe(ServerRequest req) {
+        if (this.subscribers.size() >= this.properties.getMaxSubscribers()) {
+            return status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "10").build();
+        }
+
+        var lastEventId = req.headers().firstHeader("Last-Event-ID");
+        return ServerResponse.sse(sse -> {
+            var subscriber = new Subscriber(sse);
+            sse.onComplete(subscriber::close);
+            sse.onError(e -> subscriber.close());
+            sse.onTimeout(() -> {
+                subscriber.close();
+                sse.complete();
+            });
+
+            this.lock.lock();
+            try {
+                this.subscribers.add(subscriber);
+                replay(lastEventId).forEach(subscriber::offer);
+            } finally {
+                this.lock.unlock();
+            }
+        }, this.properties.getTimeout());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("post.changes.subscribers", this.subscribers, Set::size)
+                .description("Open subscriptions to the post change feed")
+                .register(registry);
+        FunctionCounter.builder("post.changes.disconnected", this.disconnected, AtomicLong::get)
+                .description("Subscribers disconnected for falling behind the post change feed")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        this.heartbeat.shutdownNow();
+        this.dispatcher.shutdownNow();
+    }
+
+    private void publish(String event, PostSummary post) {
+        String data;
+        try {
+            data = this.writer.writeValueAsString(post);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.lock.lock();
+        try {
+            var sequence = ++this.sequence;
+            var change = new Change(sequence, this.run + "-" + sequence, event, data);
+            if (this.recent.size() == this.properties.getReplaySize()) {
+                this.recent.removeFirst();
+            }
+            this.recent.addLast(change);
+            this.subscribers.forEach(subscriber -> subscriber.offer(change));
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // called with the lock held
+    private List<Change> replay(String lastEventId) {
+        if (lastEventId == null) {
+            return List.of();
+        }
+        var separator = lastEventId.indexOf('-');
+        long last;
+        try {
+            if (separator < 0 || !lastEventId.substring(0, separator).equals(this.run)) {
+                return List.of(RESET_CHANGE);
+            }
+            last = Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return List.of(RESET_CHANGE);
+        }
+
+        if (last == this.sequence) {
+            return List.of();
+        }
+        var oldest = this.recent.isEmpty() ? this.sequence + 1 : this.recent.getFirst().sequence();
+        if (last > this.sequence || last + 1 < oldest || this.sequence - last > this.properties.getSubscriberBufferSize()) {
+            return List.of(RESET_CHANGE);
+        }
+        return this.recent.stream().filter(change -> change.sequence() > last).toList();
+    }
+
+    private record Change(long sequence, String id, String event, String data) {
+    }
+
+    private final class Subscriber {
+
+        private final ServerResponse.SseBuilder sse;
+
+        private final BlockingQueue<Change> buffer = new ArrayBlockingQueue<>(properties.getSubscriberBufferSize());
+
+        // at most one dispatch thread writes to a subscriber
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private volatile boolean closed;
+
+        private Subscriber(ServerResponse.SseBuilder sse) {
+            this.sse = sse;
+        }
+
+        void offer(Change change) {
+            if (this.closed) {
+                return;
+            }
+            if (!this.buffer.offer(change)) {
+                log.debug("Disconnecting a subscriber {} changes behind", this.buffer.size());
+                disconnected.incrementAndGet();
+                this.closed = true;
+            }
+            schedule();
+        }
+
+        void heartbeat() {
+            if (this.buffer.isEmpty()) {
+                offer(HEARTBEAT);
+            }
+        }
+
+        void close() {
+            this.closed = true;
+            subscribers.remove(this);
+        }
+
+        private void schedule() {
+            if (this.scheduled.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // shutting down
+                    this.scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Change change;
+                while (!this.closed && (change = this.buffer.poll()) != null) {
+                    send(change);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Failed to send a change, the subscriber is gone", e);
+                this.closed = true;
+            }
+
+            if (this.closed) {
+                subscribers.remove(this);
+                this.buffer.clear();
+                try {
+                    this.sse.complete();
+                } catch (RuntimeException e) {
+                    log.debug("Failed to complete a subscription", e);
+                }
+            }
+            this.scheduled.set(false);
+            // a change offered while this thread was finishing
+            if (!this.closed && !this.buffer.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void send(Change change) throws IOException {
+            if (change == HEARTBEAT) {
+                this.sse.comment("").send();
+            } else if (change == RESET_CHANGE) {
+                // an event without data is not dispatched by the browsers
+                this.sse.event(RESET).data("{}");
+            } else {
+                this.sse.id(change.id()).event(change.event()).data(change.data());
+            }
+        }
+    }
+}
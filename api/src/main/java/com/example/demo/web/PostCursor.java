@@ -0,0 +1,35 @@
+package com.example.demo.web;
+
+import com.example.demo.domain.PostSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position of the post list, the {@code (createdDate, id)} of the last post on the previous page.
+ */
+public record PostCursor(LocalDateTime createdDate, Long id) {
+
+    public static PostCursor of(PostSummary post) {
+        return new PostCursor(post.createdDate(), post.id());
+    }
+
+    public static PostCursor decode(String token) {
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            var separator = raw.lastIndexOf('|');
+            return new PostCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1))
+            );
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+
+    public String encode() {
+        var raw = createdDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
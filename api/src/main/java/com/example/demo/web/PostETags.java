@@ -0,0 +1,56 @@
+package com.example.demo.web;
+
+import com.example.demo.domain.Post;
+import com.example.demo.domain.PostSummary;
+import org.springframework.http.ETag;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Strong entity tags of posts, derived from the id and the optimistic lock version so they change on every update.
+ */
+final class PostETags {
+
+    private PostETags() {
+    }
+
+    static String of(Long id, Long version) {
+        return ETag.quoteETagIfNecessary(id + "-" + version);
+    }
+
+    static String of(Post post) {
+        return of(post.getId(), post.getVersion());
+    }
+
+    static String of(List<PostSummary> posts) {
+        var builder = new StringBuilder();
+        // a new comment changes the count but not the version of a post
+        posts.forEach(post -> builder.append(post.id()).append(':').append(post.version())
+                .append(':').append(post.commentCount()).append(','));
+        return ETag.quoteETagIfNecessary(DigestUtils.md5DigestAsHex(builder.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Extracts the version expected by an {@code If-Match} header, {@code null} when any version matches.
+     *
+     * @throws IllegalArgumentException if the header does not contain a strong tag of the given post
+     */
+    static Long expectedVersion(String ifMatch, Long id) {
+        for (var tag : ETag.parse(ifMatch)) {
+            if (tag.isWildcard()) {
+                return null;
+            }
+            var prefix = id + "-";
+            if (!tag.weak() && tag.tag().startsWith(prefix)) {
+                try {
+                    return Long.valueOf(tag.tag().substring(prefix.length()));
+                } catch (NumberFormatException e) {
+                    // not one of our tags, try the next one
+                }
+            }
+        }
+        throw new IllegalArgumentException("No entity tag of post " + id + " in: " + ifMatch);
+    }
+}
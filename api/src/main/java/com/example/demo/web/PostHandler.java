@@ -1,67 +1,283 @@
 package com.example.demo.web;
 
+import com.example.demo.config.ReadCoalescingProperties;
+import com.example.demo.config.SearchProperties;
 import com.example.demo.domain.Post;
+import com.example.demo.domain.PostSummary;
+import com.example.demo.domain.Username;
 import com.example.demo.repository.PostRepository;
+import com.example.demo.repository.ReadYourWrites;
+import com.example.demo.search.PostSearchIndex;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.function.ServerRequest;
 import org.springframework.web.servlet.function.ServerResponse;
 
 import jakarta.servlet.ServletException;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static com.example.demo.repository.PostSpecifications.*;
 import static org.springframework.web.servlet.function.ServerResponse.*;
 
 @Component
 @RequiredArgsConstructor
 public class PostHandler {
 
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+
+    private static final Sort KEYSET_SORT = Sort.by(Sort.Order.desc("createdDate"), Sort.Order.desc("id"));
+
     private final PostRepository posts;
 
+    private final EntityManager entityManager;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final AuditorAware<Username> auditor;
+
+    private final PostSearchIndex searchIndex;
+
+    private final SearchProperties searchProperties;
+
+    private final ReadCoalescingProperties readCoalescingProperties;
+
+    private final ReadYourWrites readYourWrites;
+
+    private final PostChangeFeed changes;
+
+    private final IdempotentRequests idempotentRequests;
+
+    // a widely shared post is requested by many clients at once, they share one lookup per id
+    private final SingleFlight<Long, Optional<Post>> postLoads = new SingleFlight<>();
+
+    private final SingleFlight<Long, Optional<Long>> versionLoads = new SingleFlight<>();
+
     public ServerResponse all(ServerRequest req) {
-        return ok().body(this.posts.findAll());
+        int size;
+        Optional<PostCursor> cursor;
+        try {
+            size = req.param("size")
+                    .map(Integer::valueOf)
+                    .map(s -> Math.max(1, Math.min(s, MAX_PAGE_SIZE)))
+                    .orElse(DEFAULT_PAGE_SIZE);
+            cursor = req.param("cursor").map(PostCursor::decode);
+        } catch (IllegalArgumentException e) {
+            return badRequest().build();
+        }
+
+        var filters = Stream.of(
+                        titleContains(req.param("q").orElse(null)),
+                        createdBy(req.param("author").orElse(null)),
+                        cursor.map(c -> createdBefore(c.createdDate(), c.id())).orElse(null)
+                )
+                .filter(Objects::nonNull)
+                .toList();
+
+        // fetch one extra row to know whether there is a next page without a count query
+        List<PostSummary> rows = this.posts.findSummaries(Specification.allOf(filters), KEYSET_SORT, size + 1);
+
+        var content = rows.size() > size ? rows.subList(0, size) : rows;
+        var eTag = PostETags.of(rows);
+        return req.checkNotModified(eTag).orElseGet(() -> {
+            var nextCursor = rows.size() > size ? PostCursor.of(content.get(size - 1)).encode() : null;
+            return ok().eTag(eTag).body(new CursorPage<>(content, nextCursor));
+        });
     }
 
-    public ServerResponse create(ServerRequest req) throws ServletException, IOException {
+    public ServerResponse search(ServerRequest req) {
+        var query = req.param("q").filter(StringUtils::hasText);
+        int size;
+        try {
+            size = req.param("size")
+                    .map(Integer::valueOf)
+                    .map(s -> Math.max(1, Math.min(s, this.searchProperties.getMaxResults())))
+                    .orElse(this.searchProperties.getDefaultResults());
+        } catch (IllegalArgumentException e) {
+            return badRequest().build();
+        }
+        if (query.isEmpty()) {
+            return badRequest().build();
+        }
 
-        var saved = this.posts.save(req.body(Post.class));
-        return created(URI.create("/posts/" + saved.getId())).build();
+        var ids = this.searchIndex.search(query.get(), size);
+        if (ids.isEmpty()) {
+            return ok().body(List.of());
+        }
+        // keep the rank of the index, a post deleted meanwhile is left out
+        var summaries = this.posts.findSummaries(idIn(ids), Sort.unsorted(), ids.size()).stream()
+                .collect(Collectors.toMap(PostSummary::id, Function.identity()));
+        var results = ids.stream().map(summaries::get).filter(Objects::nonNull).toList();
+        return ok().body(results);
+    }
+
+    public ServerResponse export(ServerRequest req) {
+        ObjectWriter writer = this.objectMapper.writerFor(Post.class)
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        // the stream needs a transaction to hold the cursor open, and Postgres honors the fetch size only then
+        var transaction = new TransactionTemplate(this.transactionManager);
+        transaction.setReadOnly(true);
+
+        return ok().contentType(MediaType.APPLICATION_NDJSON).build((request, response) -> {
+            var out = new BufferedOutputStream(response.getOutputStream());
+            transaction.executeWithoutResult(status -> {
+                try (Stream<Post> stream = this.posts.streamAll()) {
+                    var iterator = stream.iterator();
+                    while (iterator.hasNext()) {
+                        var post = iterator.next();
+                        writer.writeValue(out, post);
+                        out.write('\n');
+                        // keep the persistence context empty, the rows are never read again
+                        this.entityManager.detach(post);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+            return null;
+        });
+    }
+
+    // a retry with the same Idempotency-Key gets the Location of the post created by the first request
+    public ServerResponse create(ServerRequest req) throws ServletException, IOException {
+        var data = req.body(Post.class);
+        return this.idempotentRequests.create(req,
+                IdempotentRequests.fingerprint(data.getTitle(), data.getContent()),
+                () -> this.posts.save(data),
+                saved -> URI.create("/posts/" + saved.getId()),
+                saved -> {
+                    this.readYourWrites.written(saved.getId());
+                    this.searchIndex.put(saved.getId(), saved.getTitle(), saved.getContent());
+                    this.changes.created(saved);
+                });
     }
 
     public ServerResponse get(ServerRequest req) {
-        return this.posts.findById(Long.valueOf(req.pathVariable("id")))
-                .map(post -> ok().body(post))
-                .orElse(notFound().build());
+        var id = Long.valueOf(req.pathVariable("id"));
+        var timeout = this.readCoalescingProperties.getTimeout();
+
+        try {
+            // answer a revalidation from the version column alone, without loading the content
+            if (req.headers().firstHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+                var version = this.versionLoads.load(id,
+                        () -> this.readYourWrites.read(id, () -> this.posts.findVersionById(id)), timeout);
+                if (version.isEmpty()) {
+                    return notFound().build();
+                }
+                var notModified = req.checkNotModified(PostETags.of(id, version.get()));
+                if (notModified.isPresent()) {
+                    return notModified.get();
+                }
+            }
+
+            return this.postLoads.load(id,
+                            () -> this.readYourWrites.read(id, () -> this.posts.findCachedById(id)), timeout)
+                    .map(post -> ok().eTag(PostETags.of(post)).body(post))
+                    .orElse(notFound().build());
+        } catch (TimeoutException e) {
+            return status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
     }
 
     public ServerResponse update(ServerRequest req) throws ServletException, IOException {
+        var id = Long.valueOf(req.pathVariable("id"));
+        var ifMatch = req.headers().firstHeader(HttpHeaders.IF_MATCH);
+        Long ifMatchVersion;
+        try {
+            ifMatchVersion = ifMatch == null ? null : PostETags.expectedVersion(ifMatch, id);
+        } catch (IllegalArgumentException e) {
+            return status(HttpStatus.PRECONDITION_FAILED).build();
+        }
         var data = req.body(Post.class);
+        if (!this.validator.validate(data).isEmpty()) {
+            return badRequest().build();
+        }
 
-        return this.posts.findById(Long.valueOf(req.pathVariable("id")))
-                .map(
-                        post -> {
-                            post.setTitle(data.getTitle());
-                            post.setContent(data.getContent());
-                            return post;
-                        }
-                )
-                .map(this.posts::save)
-                .map(post -> noContent().build())
-                .orElse(notFound().build());
+        // the version of an If-Match header wins over the one in the body
+        var expectedVersion = ifMatch != null ? ifMatchVersion : data.getVersion();
+        // `If-Match: *` updates any version, but only of an existing post
+        boolean ifMatchAny = ifMatch != null && ifMatchVersion == null;
+        this.readYourWrites.written(id);
+        int updated = this.posts.updateContent(
+                id,
+                expectedVersion,
+                data.getTitle(),
+                data.getContent(),
+                LocalDateTime.now(),
+                this.auditor.getCurrentAuditor().map(Username::getUsername).orElse(null)
+        );
 
+        if (updated == 0) {
+            if (ifMatchAny) {
+                return status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            if (!this.readYourWrites.onPrimary(() -> this.posts.existsById(id))) {
+                return notFound().build();
+            }
+            return status(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT).build();
+        }
+        forget(id);
+        this.searchIndex.put(id, data.getTitle(), data.getContent());
+        if (expectedVersion == null) {
+            this.changes.updated(id, null, data.getTitle());
+            return noContent().build();
+        }
+        this.changes.updated(id, expectedVersion + 1, data.getTitle());
+        return noContent().eTag(PostETags.of(id, expectedVersion + 1)).build();
     }
 
     public ServerResponse delete(ServerRequest req) {
-        return this.posts.findById(Long.valueOf(req.pathVariable("id")))
-                .map(
-                        post -> {
-                            this.posts.delete(post);
-                            return noContent().build();
-                        }
-                )
-                .orElse(notFound().build());
+        var id = Long.valueOf(req.pathVariable("id"));
+        this.readYourWrites.written(id);
+        int deleted = this.posts.removeById(id);
+        if (deleted == 0) {
+            return notFound().build();
+        }
+        forget(id);
+        this.searchIndex.remove(id);
+        this.changes.deleted(id);
+        return noContent().build();
+    }
+
+    // the readers arriving after a write must not get the result of a lookup started before it
+    private void forget(Long id) {
+        this.postLoads.forget(id);
+        this.versionLoads.forget(id);
     }
 
 }
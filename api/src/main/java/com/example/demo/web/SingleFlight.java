@@ -0,0 +1,74 @@
+package com.example.demo.web;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key, the first caller runs the load on its own thread and the callers
+ * arriving while it is in flight wait for its result or its exception.
+ * <p>
+ * Nothing is kept once a load completes, the next caller starts a new one. Call {@link #forget} after a write so
+ * that the callers arriving afterwards do not join a load started before it.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param timeout how long a caller waits for a load started by another caller, the caller running the load
+     *                is bounded by the load itself
+     * @throws TimeoutException when the load of another caller did not complete in time
+     */
+    public V load(K key, Supplier<V> loader, Duration timeout) throws TimeoutException {
+        var flight = new CompletableFuture<V>();
+        var existing = this.inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return await(existing, timeout);
+        }
+
+        try {
+            var value = loader.get();
+            this.inFlight.remove(key, flight);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            this.inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public void forget(K key) {
+        this.inFlight.remove(key);
+    }
+
+    int inFlight() {
+        return this.inFlight.size();
+    }
+
+    int waiters(K key) {
+        var flight = this.inFlight.get(key);
+        return flight == null ? 0 : flight.getNumberOfDependents();
+    }
+
+    private static <V> V await(CompletableFuture<V> flight, Duration timeout) throws TimeoutException {
+        try {
+            return flight.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            // the loader only throws unchecked exceptions, the waiters get the same one as the caller running it
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw (RuntimeException) e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a concurrent load", e);
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.demo;
 
 import com.example.demo.domain.Post;
+import com.example.demo.domain.PostSummary;
 import com.example.demo.repository.PostRepository;
+import com.example.demo.search.PostSearchIndex;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -15,19 +18,32 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
 
@@ -50,6 +66,15 @@ public class ApplicationTests {
     @MockBean
     JwtDecoder jwtDecoder;
 
+    @Autowired
+    PostSearchIndex searchIndex;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    TransactionTemplate transaction;
+
     @Value("${auth0.audience}")
     private String audience;
 
@@ -61,11 +86,103 @@ public class ApplicationTests {
         Mockito.reset(this.posts);
     }
 
+    @Test
+    public void testGetAll() throws Exception {
+        var first = new PostSummary(2L, 0L, "first", null, LocalDateTime.of(2024, 1, 2, 0, 0), null, 0L);
+        var second = new PostSummary(1L, 0L, "second", null, LocalDateTime.of(2024, 1, 1, 0, 0), null, 0L);
+        given(this.posts.findSummaries(any(), any(), eq(2))).willReturn(List.of(first, second));
+
+        this.mockMvc
+                .perform(
+                        get("/posts").param("size", "1")
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].title").value("first"))
+                .andExpect(jsonPath("$.content[0].content").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty());
+
+        verify(this.posts, times(1)).findSummaries(any(), any(), eq(2));
+        verifyNoMoreInteractions(this.posts);
+    }
+
+    @Test
+    public void testGetAllWithInvalidCursor() throws Exception {
+        this.mockMvc
+                .perform(
+                        get("/posts").param("cursor", "not-a-cursor")
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(this.posts);
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        this.searchIndex.put(100L, "searchable", "searchable content");
+        this.searchIndex.put(101L, "another searchable post", "content");
+        given(this.posts.findSummaries(any(), any(), eq(2))).willReturn(List.of(
+                new PostSummary(101L, 0L, "another searchable post", null, LocalDateTime.now(), null, 0L),
+                new PostSummary(100L, 0L, "searchable", null, LocalDateTime.now(), null, 0L)
+        ));
+
+        try {
+            this.mockMvc
+                    .perform(
+                            get("/posts/search").param("q", "Searchable")
+                                    .accept(MediaType.APPLICATION_JSON)
+                    )
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(2))
+                    .andExpect(jsonPath("$[0].id").value(100))
+                    .andExpect(jsonPath("$[1].id").value(101));
+        } finally {
+            this.searchIndex.remove(100L);
+            this.searchIndex.remove(101L);
+        }
+    }
+
+    @Test
+    public void testSearchWithoutQuery() throws Exception {
+        this.mockMvc
+                .perform(get("/posts/search").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(this.posts);
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        Post first = Post.builder().title("first").content("first content").build();
+        first.setId(1L);
+        Post second = Post.builder().title("second").content("second content").build();
+        second.setId(2L);
+        given(this.posts.streamAll()).willReturn(Stream.of(first, second));
+
+        var body = this.mockMvc
+                .perform(get("/posts/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        var lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"title\":\"first\"");
+        assertThat(lines[1]).contains("\"title\":\"second\"");
+
+        verify(this.posts, times(1)).streamAll();
+        verifyNoMoreInteractions(this.posts);
+    }
+
     @Test
     public void testGetById() throws Exception {
         Post post = Post.builder().title("test").content("test content").build();
         post.setId(1L);
-        given(this.posts.findById(anyLong())).willReturn(Optional.of(post));
+        given(this.posts.findCachedById(anyLong())).willReturn(Optional.of(post));
 
         this.mockMvc
                 .perform(
@@ -75,14 +192,31 @@ public class ApplicationTests {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.title").value("test"));
 
-        verify(this.posts, times(1)).findById(any(Long.class));
+        verify(this.posts, times(1)).findCachedById(any(Long.class));
+        verifyNoMoreInteractions(this.posts);
+    }
+
+    @Test
+    public void testGetByIdNotModified() throws Exception {
+        given(this.posts.findVersionById(1L)).willReturn(Optional.of(3L));
+
+        this.mockMvc
+                .perform(
+                        get("/posts/{id}", 1L)
+                                .header("If-None-Match", "\"1-3\"")
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"1-3\""));
+
+        verify(this.posts, times(1)).findVersionById(1L);
         verifyNoMoreInteractions(this.posts);
     }
 
     @Test
     public void testGetByIdNotFound() throws Exception {
 
-        given(this.posts.findById(anyLong())).willReturn(Optional.empty());
+        given(this.posts.findCachedById(anyLong())).willReturn(Optional.empty());
         this.mockMvc
                 .perform(
                         get("/posts/{id}", Long.MAX_VALUE)
@@ -90,15 +224,16 @@ public class ApplicationTests {
                 )
                 .andExpect(status().isNotFound());
 
-        verify(this.posts, times(1)).findById(any(Long.class));
+        verify(this.posts, times(1)).findCachedById(any(Long.class));
         verifyNoMoreInteractions(this.posts);
     }
 
     @Test
     public void testSave() throws Exception {
 
-        given(this.posts.save(any(Post.class)))
-                .willReturn(Post.builder().title("test").content("test content").build());
+        var saved = Post.builder().title("test").content("test content").build();
+        saved.setId(1L);
+        given(this.posts.save(any(Post.class))).willReturn(saved);
 
         this.mockMvc
                 .perform(
@@ -114,12 +249,72 @@ public class ApplicationTests {
     }
 
     @Test
-    public void testUpdate() throws Exception {
-        given(this.posts.findById(1L))
-                .willReturn(Optional.of(Post.builder().title("test").content("test content").build()));
+    public void testSaveWithIdempotencyKey() throws Exception {
+        var saved = Post.builder().title("test").content("test content").build();
+        saved.setId(1L);
+        given(this.posts.save(any(Post.class))).willReturn(saved);
+        var body = this.objectMapper.writeValueAsBytes(Post.builder().title("test").content("test content").build());
+
+        for (int i = 0; i < 2; i++) {
+            this.mockMvc
+                    .perform(
+                            post("/posts")
+                                    .with(jwt().jwt(jwtBuilder().claim("scope", "write:posts").build()))
+                                    .header("Idempotency-Key", "save-once")
+                                    .content(body)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                    )
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string("Location", "/posts/1"));
+        }
+
+        // the key of another request
+        this.mockMvc
+                .perform(
+                        post("/posts")
+                                .with(jwt().jwt(jwtBuilder().claim("scope", "write:posts").build()))
+                                .header("Idempotency-Key", "save-once")
+                                .content(this.objectMapper.writeValueAsBytes(Post.builder().title("other").content("other content").build()))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isUnprocessableEntity());
 
-        given(this.posts.save(any(Post.class)))
-                .willReturn(Post.builder().title("testUpdate").content("testUpdate content").build());
+        verify(this.posts, times(1)).save(any(Post.class));
+        verifyNoMoreInteractions(this.posts);
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        var notFound = Post.builder().title("missing").content("missing content").build();
+        notFound.setId(Long.MAX_VALUE);
+        var items = List.of(
+                Post.builder().title("test").content("test content").build(),
+                Post.builder().title("test").build(),
+                notFound
+        );
+
+        this.mockMvc
+                .perform(
+                        post("/posts/batch")
+                                .with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_write:posts")))
+                                .content(this.objectMapper.writeValueAsBytes(items))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[0].location").isNotEmpty())
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[1].errors[0]").value("content must not be empty"))
+                .andExpect(jsonPath("$[2].status").value(404));
+
+        verifyNoInteractions(this.posts);
+    }
+
+    @Test
+    public void testUpdate() throws Exception {
+        given(this.posts.updateContent(eq(1L), isNull(), eq("testUpdate"), eq("testUpdate content"), any(), any()))
+                .willReturn(1);
 
         this.mockMvc
                 .perform(
@@ -130,18 +325,105 @@ public class ApplicationTests {
                 )
                 .andExpect(status().isNoContent());
 
-        verify(this.posts, times(1)).findById(any(Long.class));
-        verify(this.posts, times(1)).save(any(Post.class));
+        verify(this.posts, times(1)).updateContent(anyLong(), any(), anyString(), anyString(), any(), any());
         verifyNoMoreInteractions(this.posts);
     }
 
     @Test
-    public void testDelete() throws Exception {
-        Post post = Post.builder().title("test").content("test content").build();
-        post.setId(1L);
-        given(this.posts.findById(anyLong())).willReturn(Optional.of(post));
+    public void testUpdateNotFound() throws Exception {
+        given(this.posts.updateContent(anyLong(), any(), anyString(), anyString(), any(), any())).willReturn(0);
+        given(this.posts.existsById(1L)).willReturn(false);
+
+        this.mockMvc
+                .perform(
+                        put("/posts/1")
+                                .with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_write:posts")))
+                                .content(this.objectMapper.writeValueAsBytes(Post.builder().title("testUpdate").content("testUpdate content").build()))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isNotFound());
+
+        verify(this.posts, times(1)).updateContent(anyLong(), any(), anyString(), anyString(), any(), any());
+        verify(this.posts, times(1)).existsById(1L);
+        verifyNoMoreInteractions(this.posts);
+    }
+
+    @Test
+    public void testUpdateWithStaleVersion() throws Exception {
+        given(this.posts.updateContent(eq(1L), eq(1L), anyString(), anyString(), any(), any())).willReturn(0);
+        given(this.posts.existsById(1L)).willReturn(true);
+
+        var data = Post.builder().title("testUpdate").content("testUpdate content").build();
+        data.setVersion(1L);
+        this.mockMvc
+                .perform(
+                        put("/posts/1")
+                                .with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_write:posts")))
+                                .content(this.objectMapper.writeValueAsBytes(data))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isConflict());
+
+        verify(this.posts, times(1)).updateContent(anyLong(), any(), anyString(), anyString(), any(), any());
+        verify(this.posts, times(1)).existsById(1L);
+        verifyNoMoreInteractions(this.posts);
+    }
+
+    @Test
+    public void testUpdateWithWildcardIfMatchNotFound() throws Exception {
+        given(this.posts.updateContent(eq(1L), isNull(), anyString(), anyString(), any(), any())).willReturn(0);
+
+        this.mockMvc
+                .perform(
+                        put("/posts/1")
+                                .with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_write:posts")))
+                                .header("If-Match", "*")
+                                .content(this.objectMapper.writeValueAsBytes(Post.builder().title("testUpdate").content("testUpdate content").build()))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isPreconditionFailed());
 
-        doNothing().when(this.posts).delete(any(Post.class));
+        verify(this.posts, times(1)).updateContent(anyLong(), any(), anyString(), anyString(), any(), any());
+        verifyNoMoreInteractions(this.posts);
+    }
+
+    @Test
+    public void testUpdateWithStaleETag() throws Exception {
+        given(this.posts.updateContent(eq(1L), eq(1L), anyString(), anyString(), any(), any())).willReturn(0);
+        given(this.posts.existsById(1L)).willReturn(true);
+
+        this.mockMvc
+                .perform(
+                        put("/posts/1")
+                                .with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_write:posts")))
+                                .header("If-Match", "\"1-1\"")
+                                .content(this.objectMapper.writeValueAsBytes(Post.builder().title("testUpdate").content("testUpdate content").build()))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isPreconditionFailed());
+
+        verify(this.posts, times(1)).updateContent(anyLong(), any(), anyString(), anyString(), any(), any());
+        verify(this.posts, times(1)).existsById(1L);
+        verifyNoMoreInteractions(this.posts);
+    }
+
+    @Test
+    public void testUpdateWithInvalidData() throws Exception {
+        this.mockMvc
+                .perform(
+                        put("/posts/1")
+                                .with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_write:posts")))
+                                .content(this.objectMapper.writeValueAsBytes(Post.builder().title("testUpdate").build()))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(this.posts);
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        given(this.posts.removeById(1L)).willReturn(1);
 
         var jwt = jwtBuilder().claim("scope", "delete:posts");
         // when(jwtDecoder.decode(anyString())).thenReturn(jwt);
@@ -152,11 +434,153 @@ public class ApplicationTests {
                 )
                 .andExpect(status().isNoContent());
 
-        verify(this.posts, times(1)).findById(any(Long.class));
-        verify(this.posts, times(1)).delete(any(Post.class));
+        verify(this.posts, times(1)).removeById(1L);
+        verifyNoMoreInteractions(this.posts);
+    }
+
+    @Test
+    public void testDeleteNotFound() throws Exception {
+        given(this.posts.removeById(1L)).willReturn(0);
+
+        this.mockMvc
+                .perform(
+                        delete("/posts/1").with(jwt().jwt(jwtBuilder().claim("scope", "delete:posts").build()))
+                )
+                .andExpect(status().isNotFound());
+
+        verify(this.posts, times(1)).removeById(1L);
         verifyNoMoreInteractions(this.posts);
     }
 
+    @Test
+    public void testChanges() throws Exception {
+        var feed = this.mockMvc
+                .perform(get("/posts/changes").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        var saved = Post.builder().title("test").content("test content").build();
+        saved.setId(1L);
+        given(this.posts.save(any(Post.class))).willReturn(saved);
+        given(this.posts.removeById(1L)).willReturn(1);
+        this.mockMvc
+                .perform(
+                        post("/posts")
+                                .with(jwt().jwt(jwtBuilder().claim("scope", "write:posts").build()))
+                                .content(this.objectMapper.writeValueAsBytes(Post.builder().title("test").content("test content").build()))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isCreated());
+        this.mockMvc
+                .perform(delete("/posts/1").with(jwt().jwt(jwtBuilder().claim("scope", "delete:posts").build())))
+                .andExpect(status().isNoContent());
+
+        var events = awaitEvents(feed, 2);
+        assertThat(events.get(0)).contains("event:created").contains("\"title\":\"test\"");
+        assertThat(events.get(1)).contains("event:deleted").contains("\"id\":1");
+
+        // a reconnecting client gets the changes after its last event
+        var lastEventId = events.get(0).lines().filter(line -> line.startsWith("id:")).findFirst().orElseThrow().substring(3);
+        var resumed = this.mockMvc
+                .perform(get("/posts/changes").header("Last-Event-ID", lastEventId).accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        var replayed = awaitEvents(resumed, 1);
+        assertThat(replayed.get(0)).contains("event:deleted");
+    }
+
+    @Test
+    public void testChangesResetsUnknownLastEventId() throws Exception {
+        var feed = this.mockMvc
+                .perform(get("/posts/changes").header("Last-Event-ID", "previous-run-42").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertThat(awaitEvents(feed, 1).get(0)).contains("event:reset");
+    }
+
+    @Test
+    public void testCommentOnMissingPost() throws Exception {
+        this.mockMvc
+                .perform(
+                        post("/posts/{id}/comments", Long.MAX_VALUE)
+                                .with(jwt().jwt(jwtBuilder().claim("scope", "write:posts").build()))
+                                .content("{\"content\":\"a comment\"}")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isNotFound());
+
+        this.mockMvc
+                .perform(
+                        post("/posts/{id}/comments", Long.MAX_VALUE)
+                                .with(jwt().jwt(jwtBuilder().claim("scope", "write:posts").build()))
+                                .content("{\"content\":\"\"}")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testCommentCountChanges() throws Exception {
+        // the posts repository is mocked, the post is stored directly
+        var postId = this.transaction.execute(status -> {
+            var post = Post.builder().title("commented").content("commented content").build();
+            this.entityManager.persist(post);
+            return post.getId();
+        });
+        var feed = this.mockMvc
+                .perform(get("/posts/changes").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        var location = this.mockMvc
+                .perform(
+                        post("/posts/{id}/comments", postId)
+                                .with(jwt().jwt(jwtBuilder().claim("scope", "write:posts").build()))
+                                .content("{\"content\":\"a comment\"}")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader("Location");
+        this.mockMvc
+                .perform(delete(location).with(jwt().jwt(jwtBuilder().claim("scope", "delete:posts").build())))
+                .andExpect(status().isNoContent());
+
+        var events = awaitEvents(feed, 2);
+        assertThat(events.get(0)).contains("event:updated").contains("\"id\":" + postId).contains("\"commentCount\":1");
+        assertThat(events.get(1)).contains("event:updated").contains("\"id\":" + postId).contains("\"commentCount\":0")
+                .doesNotContain("\"version\"").doesNotContain("\"title\"");
+    }
+
+    @Test
+    public void testCommentsOfPostsNeedIds() throws Exception {
+        this.mockMvc
+                .perform(get("/posts/comments").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        this.mockMvc
+                .perform(get("/posts/comments").param("ids", "1,x").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        this.mockMvc
+                .perform(get("/posts/comments").param("ids", "1,2").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isMap());
+    }
+
+    private static List<String> awaitEvents(MvcResult result, int count) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        List<String> events;
+        do {
+            Thread.sleep(10);
+            events = Arrays.stream(result.getResponse().getContentAsString().split("\n\n"))
+                    .filter(event -> event.contains("event:"))
+                    .toList();
+        } while (events.size() < count && System.nanoTime() < deadline);
+        assertThat(events).hasSize(count);
+        return events;
+    }
+
     private Jwt.Builder jwtBuilder() {
         return Jwt.withTokenValue("token").header("alg", "none").audience(List.of(audience));
     }
@@ -0,0 +1,94 @@
+package com.example.demo;
+
+import com.example.demo.config.SeedProperties;
+import com.example.demo.search.PostSearchIndex;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "blog.seed.posts=2345",
+        "blog.seed.chunk-size=500",
+        "blog.seed.threads=3",
+        "blog.seed.authors=10",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class DataInitializerTests {
+
+    @Autowired
+    DataInitializer dataInitializer;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PostSearchIndex searchIndex;
+
+    @MockBean
+    JwtDecoder jwtDecoder;
+
+    @Test
+    public void testPostsAreSeededInBatches() {
+        assertThat(this.jdbcTemplate.queryForObject("select count(*) from posts", Long.class)).isEqualTo(2345);
+        assertThat(this.jdbcTemplate.queryForObject("select count(distinct created_by) from posts", Long.class)).isBetween(2L, 10L);
+        assertThat(this.jdbcTemplate.queryForObject("select count(*) from posts where created_date > last_modified_date", Long.class)).isZero();
+        assertThat(this.jdbcTemplate.queryForObject("select count(*) from posts where version is null", Long.class)).isZero();
+
+        var statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // 5 chunks, in batches of 50 posts
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(2345 / 10);
+    }
+
+    @Test
+    public void testSeedingIsSkippedWhenPostsExist() throws Exception {
+        this.dataInitializer.run(new DefaultApplicationArguments());
+
+        assertThat(this.jdbcTemplate.queryForObject("select count(*) from posts", Long.class)).isEqualTo(2345);
+    }
+
+    @Test
+    public void testSeededPostsAreIndexedInBackground() throws Exception {
+        for (int i = 0; i < 100 && this.searchIndex.isRebuilding(); i++) {
+            Thread.sleep(100);
+        }
+
+        assertThat(this.searchIndex.isRebuilding()).isFalse();
+        assertThat(this.searchIndex.health().getDetails()).containsEntry("posts", 2345);
+    }
+
+    @Test
+    public void testGeneratedPostsVary() {
+        var properties = new SeedProperties();
+        var generator = new PostGenerator(properties, LocalDateTime.now());
+
+        var random = new SplittableRandom(1);
+        var lengths = new TreeSet<Integer>();
+        for (int i = 0; i < 200; i++) {
+            var post = generator.next(random);
+            assertThat(post.getTitle()).isNotBlank();
+            assertThat(post.getContent().length()).isBetween(properties.getMinContentLength(), properties.getMaxContentLength());
+            assertThat(post.getCreatedDate()).isBefore(LocalDateTime.now()).isAfter(LocalDateTime.now().minus(properties.getPeriod()));
+            lengths.add(post.getContent().length());
+        }
+        assertThat(lengths.first()).isLessThan(1_000);
+        assertThat(lengths.last()).isGreaterThan(5_000);
+
+        // the same posts for the same random
+        assertThat(generator.next(new SplittableRandom(7)).getContent()).isEqualTo(generator.next(new SplittableRandom(7)).getContent());
+    }
+}
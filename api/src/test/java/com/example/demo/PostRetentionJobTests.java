@@ -0,0 +1,118 @@
+package com.example.demo;
+
+import com.example.demo.config.BlogProperties;
+import com.example.demo.domain.Comment;
+import com.example.demo.domain.Post;
+import com.example.demo.repository.CommentRepository;
+import com.example.demo.repository.PostRepository;
+import com.example.demo.search.PostSearchIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "blog.seed.enabled=false")
+public class PostRetentionJobTests {
+
+    @Autowired
+    PostRepository posts;
+
+    @Autowired
+    CommentRepository comments;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    PostSearchIndex searchIndex;
+
+    @MockBean
+    JwtDecoder jwtDecoder;
+
+    private final List<Long> oldPosts = new ArrayList<>();
+
+    private Long recentPost;
+
+    @BeforeEach
+    public void setup() {
+        this.jdbcTemplate.update("delete from posts_archive");
+        this.jdbcTemplate.update("delete from posts");
+        this.oldPosts.clear();
+        var old = Timestamp.valueOf(LocalDateTime.now().minusYears(3));
+        for (int i = 0; i < 7; i++) {
+            var id = this.posts.save(Post.builder().title("old post " + i).content("content of old post " + i).build()).getId();
+            this.jdbcTemplate.update("update posts set last_modified_date = ? where id = ?", old, id);
+            this.oldPosts.add(id);
+        }
+        this.comments.addToPost(this.oldPosts.get(0), Comment.builder().content("a comment").build());
+        this.recentPost = this.posts.save(Post.builder().title("recent post").content("content of recent post").build()).getId();
+    }
+
+    @Test
+    public void testOldPostsAreArchivedInChunks() {
+        var registry = new SimpleMeterRegistry();
+        var job = job(BlogProperties.Action.ARCHIVE, registry);
+
+        assertThat(job.run()).isEqualTo(7);
+
+        assertThat(this.posts.findAll()).extracting(Post::getId).containsExactly(this.recentPost);
+        assertThat(this.jdbcTemplate.queryForList("select id from posts_archive", Long.class))
+                .containsExactlyInAnyOrderElementsOf(this.oldPosts);
+        assertThat(this.jdbcTemplate.queryForObject("select title from posts_archive where id = ?", String.class, this.oldPosts.get(3)))
+                .isEqualTo("old post 3");
+        assertThat(this.jdbcTemplate.queryForObject("select count(*) from comments", Long.class)).isZero();
+
+        // chunks of 3 posts
+        assertThat(registry.get("post.retention.chunk").timer().count()).isEqualTo(3);
+        assertThat(registry.get("post.retention.rows").tag("action", "archive").functionCounter().count()).isEqualTo(7);
+        assertThat(registry.get("post.retention.run.rows").gauge().value()).isEqualTo(7);
+
+        // nothing left
+        assertThat(job.run()).isZero();
+        assertThat(registry.get("post.retention.rows").functionCounter().count()).isEqualTo(7);
+    }
+
+    @Test
+    public void testOldPostsAreDeleted() {
+        var job = job(BlogProperties.Action.DELETE, new SimpleMeterRegistry());
+
+        assertThat(job.run()).isEqualTo(7);
+
+        assertThat(this.posts.findAll()).extracting(Post::getId).containsExactly(this.recentPost);
+        assertThat(this.jdbcTemplate.queryForObject("select count(*) from posts_archive", Long.class)).isZero();
+    }
+
+    private PostRetentionJob job(BlogProperties.Action action, SimpleMeterRegistry registry) {
+        var properties = new BlogProperties();
+        properties.getRetention().setAction(action);
+        properties.getRetention().setChunkSize(3);
+        properties.getRetention().setPause(Duration.ZERO);
+        var job = new PostRetentionJob(properties, this.entityManager, this.transactionManager, this.cacheManager, this.searchIndex);
+        job.bindTo(registry);
+        return job;
+    }
+}
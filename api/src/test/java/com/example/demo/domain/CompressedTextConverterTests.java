@@ -0,0 +1,35 @@
+package com.example.demo.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompressedTextConverterTests {
+
+    private final CompressedTextConverter converter = new CompressedTextConverter();
+
+    @Test
+    public void testShortTextIsStoredPlain() {
+        var stored = this.converter.convertToDatabaseColumn("short content");
+
+        assertThat(stored[0]).isEqualTo(CompressedTextConverter.PLAIN);
+        assertThat(this.converter.convertToEntityAttribute(stored)).isEqualTo("short content");
+    }
+
+    @Test
+    public void testLongTextIsDeflated() {
+        var text = "Größere Inhalte werden komprimiert. ".repeat(100);
+
+        var stored = this.converter.convertToDatabaseColumn(text);
+
+        assertThat(stored[0]).isEqualTo(CompressedTextConverter.DEFLATED);
+        assertThat(stored.length).isLessThan(text.length());
+        assertThat(this.converter.convertToEntityAttribute(stored)).isEqualTo(text);
+    }
+
+    @Test
+    public void testNull() {
+        assertThat(this.converter.convertToDatabaseColumn(null)).isNull();
+        assertThat(this.converter.convertToEntityAttribute(null)).isNull();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.load;
+
+import com.example.demo.domain.Post;
+import com.example.demo.repository.PostRepository;
+import com.example.demo.security.StubIssuer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Mixed read and write traffic through the real security filter chain and handlers, with the tokens of a local
+ * stub issuer, so it runs offline.
+ * <p>
+ * Run with {@code mvn test -Dtest=EndToEndLoadTests -Dbenchmark=true}, the reports are logged. The load is tuned
+ * with {@code -Dload.concurrency} and {@code -Dload.requests}, the number of requests per client.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+public class EndToEndLoadTests {
+
+    static final String AUDIENCE = "https://hantsy.github.io/api";
+
+    static final int SEEDED_POSTS = 200;
+
+    // every client of the same user reuses its token, like a real client until it expires
+    static final int USERS = 50;
+
+    static final StubIssuer issuer = StubIssuer.start(AUDIENCE);
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    PostRepository posts;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    List<Long> ids;
+
+    List<String> tokens;
+
+    @DynamicPropertySource
+    static void issuerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", issuer::issuer);
+        registry.add("auth0.audience", () -> AUDIENCE);
+        // measure the application, not the limits of a few busy users
+        registry.add("blog.rate-limit.enabled", () -> false);
+    }
+
+    @AfterAll
+    static void stopIssuer() {
+        issuer.close();
+    }
+
+    @BeforeEach
+    public void setup() {
+        this.ids = IntStream.range(0, SEEDED_POSTS)
+                .mapToObj(i -> Post.builder().title("load test post " + i).content("content of load test post " + i).build())
+                .map(this.posts::save)
+                .map(Post::getId)
+                .toList();
+        this.tokens = IntStream.range(0, USERS)
+                .mapToObj(i -> issuer.token("user" + i, "read:posts", "write:posts"))
+                .toList();
+    }
+
+    @Test
+    public void mixedReadsAndWrites() throws InterruptedException {
+        var driver = new LoadDriver(Integer.getInteger("load.concurrency", 50), Integer.getInteger("load.requests", 40));
+        // warm up the JIT, the connection pools and the JWK set cache first
+        driver.run("mixed (warm-up)", this::mixed);
+        var report = driver.run("mixed", this::mixed);
+
+        assertThat(report.errors()).isZero();
+    }
+
+    /*
+     * Per 20 requests: 11 list pages, 4 single posts, 1 search, 2 creates and 2 updates.
+     */
+    private HttpRequest mixed(int sequence) {
+        var id = this.ids.get(sequence % this.ids.size());
+        var token = this.tokens.get(sequence % this.tokens.size());
+        return switch (sequence % 20) {
+            case 0, 1 -> write(token, "/posts").POST(body(sequence)).build();
+            case 2, 3 -> write(token, "/posts/" + id).PUT(body(sequence)).build();
+            case 4 -> read("/posts/search?q=load+post");
+            case 5, 6, 7, 8 -> read("/posts/" + id);
+            default -> read("/posts?size=20");
+        };
+    }
+
+    private HttpRequest read(String path) {
+        return LoadDriver.request(this.port, path)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest.Builder write(String token, String path) {
+        return LoadDriver.request(this.port, path)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+    }
+
+    private HttpRequest.BodyPublisher body(int sequence) {
+        try {
+            var post = Post.builder().title("load test write " + sequence).content("written by request " + sequence).build();
+            return HttpRequest.BodyPublishers.ofByteArray(this.objectMapper.writeValueAsBytes(post));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
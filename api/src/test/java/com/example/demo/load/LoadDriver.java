@@ -0,0 +1,112 @@
+package com.example.demo.load;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Drives a running application over HTTP from a fixed number of concurrent clients and reports the throughput
+ * and latency percentiles.
+ */
+@Slf4j
+public class LoadDriver {
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final int concurrency;
+
+    private final int requestsPerClient;
+
+    public LoadDriver(int concurrency, int requestsPerClient) {
+        this.concurrency = concurrency;
+        this.requestsPerClient = requestsPerClient;
+    }
+
+    /**
+     * Sends the requests created by {@code requests}, called with a sequence number for every request.
+     */
+    public Report run(String name, IntFunction<HttpRequest> requests) throws InterruptedException {
+        var sequence = new AtomicInteger();
+        var errors = new AtomicInteger();
+        var latencies = new long[this.concurrency][this.requestsPerClient];
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.concurrency);
+        try {
+            List<Callable<Void>> clients = new ArrayList<>();
+            for (int c = 0; c < this.concurrency; c++) {
+                var clientLatencies = latencies[c];
+                clients.add(() -> {
+                    for (int i = 0; i < this.requestsPerClient; i++) {
+                        var request = requests.apply(sequence.getAndIncrement());
+                        long start = System.nanoTime();
+                        try {
+                            var response = this.client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        clientLatencies[i] = System.nanoTime() - start;
+                    }
+                    return null;
+                });
+            }
+
+            long start = System.nanoTime();
+            executor.invokeAll(clients);
+            var report = Report.of(name, System.nanoTime() - start, latencies, errors.get());
+            log.info("{}", report);
+            return report;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public static HttpRequest.Builder request(int port, String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(30));
+    }
+
+    public record Report(String name, long requests, int errors, double throughput, Duration p50, Duration p99) {
+
+        static Report of(String name, long elapsedNanos, long[][] latencies, int errors) {
+            var all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+            return new Report(
+                    name,
+                    all.length,
+                    errors,
+                    all.length / (elapsedNanos / 1_000_000_000.0),
+                    Duration.ofNanos(percentile(all, 0.50)),
+                    Duration.ofNanos(percentile(all, 0.99))
+            );
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d requests, %d errors, %.1f req/s, p50 %.2f ms, p99 %.2f ms",
+                    name, requests, errors, throughput, p50.toNanos() / 1e6, p99.toNanos() / 1e6);
+        }
+    }
+}
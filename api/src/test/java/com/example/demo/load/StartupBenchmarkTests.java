@@ -0,0 +1,178 @@
+package com.example.demo.load;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.File;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the time to the first request of a new JVM, from the start of the process to the first successful
+ * {@code GET /posts}, started with the default profile, with the {@code fast-start} profile, and with the
+ * {@code fast-start} profile plus the AOT processed context, a class data sharing archive, or both.
+ * <p>
+ * Run with {@code mvn package -Paot -DskipTests} then {@code mvn test -Dtest=StartupBenchmarkTests -Dbenchmark=true}
+ * against the database of the docker-compose.yml. Every variant runs the packaged jar, or the jar of
+ * {@code -Dbenchmark.jar}, the class data sharing archives are created by a training run of the extracted jar. The
+ * reports are logged and the output of every run is kept in {@code target/startup-*.log}. The schema is created by
+ * a first start that is not measured, the {@code fast-start} profile only validates it.
+ * <p>
+ * A few runs are noisy, the reports are only logged. Compare them over several runs on a quiet machine.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+public class StartupBenchmarkTests {
+
+    static final int RUNS = 5;
+
+    static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+
+    static final String FAST_START = "-Dspring.profiles.active=fast-start";
+
+    static final String AOT = "-Dspring.aot.enabled=true";
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    @Test
+    void timeToFirstRequest() throws Exception {
+        var jar = jar();
+        timeToFirstRequest("schema", 0, List.of("-jar", jar.getPath(), "--spring.jpa.hibernate.ddl-auto=create"));
+
+        var extracted = extract(jar);
+        var cds = train("cds", extracted, FAST_START);
+        var aotCds = train("aot-cds", extracted, FAST_START, AOT);
+
+        var reports = new LinkedHashMap<String, Report>();
+        reports.put("fast-start", measure("fast-start", FAST_START, "-jar", jar.getPath()));
+        reports.put("fast-start+aot", measure("fast-start-aot", FAST_START, AOT, "-jar", jar.getPath()));
+        reports.put("fast-start+cds", measure("fast-start-cds",
+                "-XX:SharedArchiveFile=" + cds, FAST_START, "-jar", extracted.getPath()));
+        reports.put("fast-start+aot+cds", measure("fast-start-aot-cds",
+                "-XX:SharedArchiveFile=" + aotCds, FAST_START, AOT, "-jar", extracted.getPath()));
+        // the default profile drops the schema when it stops, it runs last
+        var defaults = measure("default", "-jar", jar.getPath());
+
+        log.info("time to first request, default: {}, spread {} ms", defaults, defaults.max() - defaults.min());
+        reports.forEach((name, report) -> {
+            long gain = defaults.median() - report.median();
+            log.info("time to first request, {}: {}, median {} ms {} than the default, {}", name, report, Math.abs(gain),
+                    gain < 0 ? "slower" : "faster", "%.1f%%".formatted(100.0 * Math.abs(gain) / defaults.median()));
+        });
+    }
+
+    private static File jar() {
+        var path = System.getProperty("benchmark.jar");
+        if (path != null) {
+            return new File(path);
+        }
+        var jars = new File("target").listFiles((dir, name) -> name.endsWith(".jar") && !name.endsWith("-plain.jar"));
+        assertThat(jars).as("no jar in target, run mvn package -Paot -DskipTests first").hasSize(1);
+        return jars[0];
+    }
+
+    private File extract(File jar) throws Exception {
+        var destination = new File("target/startup-cds");
+        run("extract", List.of("-Djarmode=tools", "-jar", jar.getPath(), "extract", "--force",
+                "--destination", destination.getPath()));
+        return new File(destination, jar.getName());
+    }
+
+    // the training run stops once the context is refreshed
+    private File train(String name, File extracted, String... args) throws Exception {
+        var archive = new File("target/startup-" + name + ".jsa");
+        List<String> command = new ArrayList<>(List.of("-XX:ArchiveClassesAtExit=" + archive, "-Dspring.context.exit=onRefresh"));
+        command.addAll(List.of(args));
+        command.addAll(List.of("-jar", extracted.getPath()));
+        run("train-" + name, command);
+        assertThat(archive).as("no archive created by the %s training run", name).exists();
+        return archive;
+    }
+
+    private void run(String name, List<String> args) throws Exception {
+        var output = new File("target/startup-" + name + ".log");
+        var process = start(output, args);
+        if (!process.waitFor(START_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            stop(process);
+            throw new AssertionError(name + " did not exit in " + START_TIMEOUT + ", see " + output);
+        }
+        assertThat(process.exitValue()).as("%s failed, see %s", name, output).isZero();
+    }
+
+    private Report measure(String name, String... args) throws Exception {
+        var millis = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            millis[i] = timeToFirstRequest(name, i + 1, List.of(args));
+        }
+        Arrays.sort(millis);
+        return new Report(millis[0], millis[RUNS / 2], millis[RUNS - 1]);
+    }
+
+    private long timeToFirstRequest(String name, int run, List<String> args) throws Exception {
+        int port;
+        try (var socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> command = new ArrayList<>(args);
+        command.add("--server.port=" + port);
+
+        var output = new File("target/startup-" + name + "-" + run + ".log");
+        long start = System.nanoTime();
+        var process = start(output, command);
+        try {
+            var request = LoadDriver.request(port, "/posts").build();
+            while (System.nanoTime() - start < START_TIMEOUT.toNanos()) {
+                assertThat(process.isAlive()).as("%s run %d exited, see %s", name, run, output).isTrue();
+                try {
+                    if (this.client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (ConnectException e) {
+                    // not listening yet
+                }
+                Thread.sleep(10);
+            }
+            throw new AssertionError(name + " run " + run + " did not serve a request in " + START_TIMEOUT);
+        } finally {
+            stop(process);
+        }
+    }
+
+    private static Process start(File output, List<String> args) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(args);
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(output)
+                .start();
+    }
+
+    private static void stop(Process process) throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    record Report(long min, long median, long max) {
+
+        @Override
+        public String toString() {
+            return "min %d ms, median %d ms, max %d ms".formatted(this.min, this.median, this.max);
+        }
+    }
+}
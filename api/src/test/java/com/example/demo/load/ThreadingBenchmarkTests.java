@@ -0,0 +1,67 @@
+package com.example.demo.load;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Compares the read path served by the Tomcat platform thread pool and by virtual threads.
+ * <p>
+ * Run with {@code mvn test -Dtest=ThreadingBenchmarkTests -Dbenchmark=true}, the reports are logged.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ThreadingBenchmarkTests {
+
+    static final int CONCURRENCY = 200;
+
+    static final int REQUESTS_PER_CLIENT = 25;
+
+    abstract static class Benchmark {
+
+        @LocalServerPort
+        int port;
+
+        @MockBean
+        JwtDecoder jwtDecoder;
+
+        void run(String name) throws InterruptedException {
+            var driver = new LoadDriver(CONCURRENCY, REQUESTS_PER_CLIENT);
+            // warm up the JIT and the connection pools first
+            driver.run(name + " (warm-up)", i -> LoadDriver.request(this.port, "/posts?size=20").build());
+            var report = driver.run(name, i -> LoadDriver.request(this.port, "/posts?size=20").build());
+            assertThat(report.errors()).isZero();
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = RANDOM_PORT)
+    class PlatformThreads extends Benchmark {
+
+        @Test
+        void listPosts() throws InterruptedException {
+            run("platform threads");
+        }
+    }
+
+    @Nested
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    @SpringBootTest(webEnvironment = RANDOM_PORT)
+    @ActiveProfiles("virtual-threads")
+    class VirtualThreads extends Benchmark {
+
+        @Test
+        void listPosts() throws InterruptedException {
+            run("virtual threads");
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Comment;
+import com.example.demo.domain.Post;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class CommentRepositoryTests {
+
+    @Autowired
+    CommentRepository comments;
+
+    @Autowired
+    PostRepository posts;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    JwtDecoder jwtDecoder;
+
+    @Test
+    public void testCommentCountIsMaintained() {
+        var post = this.posts.save(Post.builder().title("commented").content("commented content").build());
+
+        var first = this.comments.addToPost(post.getId(), comment("first")).orElseThrow();
+        this.comments.addToPost(post.getId(), comment("second")).orElseThrow();
+        assertThat(commentCount(post)).isEqualTo(2);
+
+        assertThat(this.comments.removeFromPost(post.getId(), first.getId())).isTrue();
+        assertThat(this.comments.removeFromPost(post.getId(), first.getId())).isFalse();
+        assertThat(commentCount(post)).isEqualTo(1);
+
+        // an update of the post keeps the count
+        var loaded = this.posts.findById(post.getId()).orElseThrow();
+        loaded.setTitle("updated");
+        this.posts.save(loaded);
+        assertThat(commentCount(post)).isEqualTo(1);
+
+        assertThat(this.comments.addToPost(Long.MAX_VALUE, comment("orphan"))).isEmpty();
+    }
+
+    @Test
+    public void testFindByPostIdIsKeysetPaginated() {
+        var post = this.posts.save(Post.builder().title("paginated").content("paginated content").build());
+        for (int i = 0; i < 5; i++) {
+            this.comments.addToPost(post.getId(), comment("comment " + i));
+        }
+
+        var firstPage = this.comments.findByPostId(post.getId(), null, Limit.of(3));
+        assertThat(firstPage).extracting(Comment::getContent).containsExactly("comment 0", "comment 1", "comment 2");
+
+        var nextPage = this.comments.findByPostId(post.getId(), firstPage.get(2).getId(), Limit.of(3));
+        assertThat(nextPage).extracting(Comment::getContent).containsExactly("comment 3", "comment 4");
+    }
+
+    @Test
+    public void testFindFirstByPostIdsInOneQuery() {
+        var busy = this.posts.save(Post.builder().title("busy").content("busy content").build());
+        var quiet = this.posts.save(Post.builder().title("quiet").content("quiet content").build());
+        var silent = this.posts.save(Post.builder().title("silent").content("silent content").build());
+        for (int i = 0; i < 3; i++) {
+            this.comments.addToPost(busy.getId(), comment("busy " + i));
+        }
+        this.comments.addToPost(quiet.getId(), comment("quiet 0"));
+
+        var statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        var found = this.comments.findFirstByPostIds(List.of(busy.getId(), quiet.getId(), silent.getId()), 2);
+
+        assertThat(found).extracting(Comment::getContent).containsExactly("busy 0", "busy 1", "quiet 0");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDeletingPostDeletesComments() {
+        var post = this.posts.save(Post.builder().title("deleted").content("deleted content").build());
+        this.comments.addToPost(post.getId(), comment("gone"));
+
+        this.posts.removeById(post.getId());
+
+        assertThat(this.comments.findByPostId(post.getId(), null, Limit.of(10))).isEmpty();
+    }
+
+    private long commentCount(Post post) {
+        return this.posts.findSummaries(PostSpecifications.idIn(List.of(post.getId())), Sort.unsorted(), 1)
+                .get(0).commentCount();
+    }
+
+    private static Comment comment(String content) {
+        return Comment.builder().content(content).build();
+    }
+}
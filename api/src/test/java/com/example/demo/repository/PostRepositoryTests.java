@@ -0,0 +1,205 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Post;
+import com.example.demo.domain.PostSummary;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class PostRepositoryTests {
+
+    @Autowired
+    PostRepository posts;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @MockBean
+    JwtDecoder jwtDecoder;
+
+    Cache cache;
+
+    @BeforeEach
+    public void setup() {
+        this.cache = this.cacheManager.getCache(PostRepository.POSTS_CACHE);
+        this.cache.clear();
+    }
+
+    @Test
+    public void testFindCachedById() {
+        var saved = this.posts.save(Post.builder().title("cached").content("cached content").build());
+
+        var first = this.posts.findCachedById(saved.getId()).orElseThrow();
+        var second = this.posts.findCachedById(saved.getId()).orElseThrow();
+
+        assertThat(second).isSameAs(first);
+        assertThat(this.cache.get(saved.getId())).isNotNull();
+    }
+
+    @Test
+    public void testSaveEvictsCachedPost() {
+        var saved = this.posts.save(Post.builder().title("cached").content("cached content").build());
+        this.posts.findCachedById(saved.getId());
+
+        var post = this.posts.findById(saved.getId()).orElseThrow();
+        post.setTitle("updated");
+        this.posts.save(post);
+
+        assertThat(this.cache.get(saved.getId())).isNull();
+        assertThat(this.posts.findCachedById(saved.getId())).get().extracting(Post::getTitle).isEqualTo("updated");
+    }
+
+    @Test
+    public void testDeleteEvictsCachedPost() {
+        var saved = this.posts.save(Post.builder().title("cached").content("cached content").build());
+        this.posts.findCachedById(saved.getId());
+
+        this.posts.delete(saved);
+
+        assertThat(this.posts.findCachedById(saved.getId())).isEmpty();
+    }
+
+    @Test
+    public void testUpdateContent() {
+        var saved = this.posts.save(Post.builder().title("title").content("content").build());
+        var now = LocalDateTime.now();
+
+        assertThat(this.posts.updateContent(saved.getId(), saved.getVersion() + 1, "stale", "stale", now, "user")).isZero();
+        assertThat(this.posts.updateContent(saved.getId(), saved.getVersion(), "updated", "updated", now, "user")).isOne();
+        assertThat(this.posts.updateContent(saved.getId(), null, "again", "again", now, "user")).isOne();
+
+        var updated = this.posts.findById(saved.getId()).orElseThrow();
+        assertThat(updated.getTitle()).isEqualTo("again");
+        assertThat(updated.getVersion()).isEqualTo(saved.getVersion() + 2);
+        assertThat(updated.getLastModifiedBy().getUsername()).isEqualTo("user");
+    }
+
+    @Test
+    public void testRemoveById() {
+        var saved = this.posts.save(Post.builder().title("title").content("content").build());
+
+        assertThat(this.posts.removeById(saved.getId())).isOne();
+        assertThat(this.posts.removeById(saved.getId())).isZero();
+    }
+
+    @Test
+    public void testContentIsLazyAndCompressed() {
+        var content = "long content ".repeat(500);
+        var saved = this.posts.save(Post.builder().title("lazy").content(content).build());
+
+        var post = this.posts.findById(saved.getId()).orElseThrow();
+        assertThat(Hibernate.isPropertyInitialized(post, "content")).isFalse();
+
+        var cached = this.posts.findCachedById(saved.getId()).orElseThrow();
+        assertThat(Hibernate.isPropertyInitialized(cached, "content")).isTrue();
+        assertThat(cached.getContent()).isEqualTo(content);
+
+        var stored = this.jdbcTemplate.queryForObject("select content from posts where id = ?", byte[].class, saved.getId());
+        assertThat(stored.length).isLessThan(content.length() / 10);
+    }
+
+    @Test
+    public void testStreamAllLoadsContent() {
+        var saved = this.posts.save(Post.builder().title("stream").content("stream content").build());
+
+        var transaction = new TransactionTemplate(this.transactionManager);
+        transaction.setReadOnly(true);
+        var post = transaction.execute(status -> {
+            try (Stream<Post> stream = this.posts.streamAll()) {
+                return stream.filter(p -> p.getId().equals(saved.getId())).findFirst().orElseThrow();
+            }
+        });
+        assertThat(Hibernate.isPropertyInitialized(post, "content")).isTrue();
+        assertThat(post.getContent()).isEqualTo("stream content");
+    }
+
+    @Test
+    public void testFindSummaries() {
+        var first = this.posts.save(Post.builder().title("summary first").content("content").build());
+        var second = this.posts.save(Post.builder().title("summary second").content("content").build());
+        var sort = Sort.by(Sort.Order.desc("createdDate"), Sort.Order.desc("id"));
+
+        var summaries = this.posts.findSummaries(PostSpecifications.titleContains("Summary"), sort, 10);
+        assertThat(summaries).extracting(PostSummary::id).containsExactly(second.getId(), first.getId());
+        assertThat(summaries.get(0).title()).isEqualTo("summary second");
+        assertThat(summaries.get(0).version()).isEqualTo(second.getVersion());
+
+        var next = this.posts.findSummaries(
+                Specification.allOf(
+                        PostSpecifications.titleContains("summary"),
+                        PostSpecifications.createdBefore(summaries.get(0).createdDate(), summaries.get(0).id())
+                ),
+                sort,
+                10
+        );
+        assertThat(next).extracting(PostSummary::id).containsExactly(first.getId());
+    }
+
+    @Test
+    public void testTitleWildcardsAreLiteral() {
+        var percent = this.posts.save(Post.builder().title("escaped 100% done").content("content").build());
+        this.posts.save(Post.builder().title("escaped 1000 done").content("content").build());
+        var underscore = this.posts.save(Post.builder().title("escaped a_b").content("content").build());
+        this.posts.save(Post.builder().title("escaped axb").content("content").build());
+        var sort = Sort.by(Sort.Order.desc("createdDate"), Sort.Order.desc("id"));
+
+        assertThat(this.posts.findSummaries(PostSpecifications.titleContains("100%"), sort, 10))
+                .extracting(PostSummary::id).containsExactly(percent.getId());
+        assertThat(this.posts.findSummaries(PostSpecifications.titleContains("A_B"), sort, 10))
+                .extracting(PostSummary::id).containsExactly(underscore.getId());
+        assertThat(this.posts.findSummaries(PostSpecifications.titleContains("\\"), sort, 10)).isEmpty();
+    }
+
+    @Test
+    @Transactional(readOnly = true)
+    public void testRowsMetrics() {
+        var before = this.posts.count();
+        this.posts.findAll();
+        this.posts.removeById(-1L);
+        try (Stream<Post> stream = this.posts.streamAll()) {
+            stream.forEach(post -> {
+            });
+        }
+
+        assertThat(rows("findAll").totalAmount()).isGreaterThanOrEqualTo(before);
+        assertThat(rows("removeById").count()).isPositive();
+        assertThat(rows("streamAll").totalAmount()).isGreaterThanOrEqualTo(before);
+        assertThat(this.meterRegistry.find(RepositoryRowsInterceptor.METRIC_NAME).tag("method", "count").meter()).isNull();
+    }
+
+    private DistributionSummary rows(String method) {
+        return this.meterRegistry.get(RepositoryRowsInterceptor.METRIC_NAME)
+                .tag("repository", "PostRepository")
+                .tag("method", method)
+                .summary();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+public class ReplicaDataSourceTests {
+
+    private static final String LAG_QUERY = "select lag";
+
+    private DataSource primary;
+
+    private DataSource replica;
+
+    private Connection primaryConnection;
+
+    private Connection replicaConnection;
+
+    private ResultSet lag;
+
+    private ReplicaDataSource dataSource;
+
+    @BeforeEach
+    public void setup() throws SQLException {
+        this.primary = mock(DataSource.class);
+        this.replica = mock(DataSource.class);
+        this.primaryConnection = mock(Connection.class);
+        this.replicaConnection = mock(Connection.class);
+        this.lag = mock(ResultSet.class);
+        var statement = mock(Statement.class);
+        given(this.primary.getConnection()).willReturn(this.primaryConnection);
+        given(this.replica.getConnection()).willReturn(this.replicaConnection);
+        given(this.replicaConnection.createStatement()).willReturn(statement);
+        given(statement.executeQuery(LAG_QUERY)).willReturn(this.lag);
+        given(this.lag.next()).willReturn(true);
+
+        this.dataSource = new ReplicaDataSource(this.replica, this.primary,
+                Duration.ofSeconds(5), Duration.ofSeconds(5), LAG_QUERY);
+    }
+
+    @Test
+    public void testPrimaryUntilReplicaIsChecked() throws SQLException {
+        assertThat(this.dataSource.getConnection()).isSameAs(this.primaryConnection);
+
+        given(this.lag.getDouble(1)).willReturn(1.5);
+        this.dataSource.check();
+
+        assertThat(this.dataSource.isAvailable()).isTrue();
+        assertThat(this.dataSource.getConnection()).isSameAs(this.replicaConnection);
+    }
+
+    @Test
+    public void testPrimaryWhileReplicaLags() throws SQLException {
+        given(this.lag.getDouble(1)).willReturn(12.0);
+        this.dataSource.check();
+
+        assertThat(this.dataSource.isAvailable()).isFalse();
+        assertThat(this.dataSource.getConnection()).isSameAs(this.primaryConnection);
+
+        given(this.lag.getDouble(1)).willReturn(0.0);
+        this.dataSource.check();
+
+        assertThat(this.dataSource.getConnection()).isSameAs(this.replicaConnection);
+    }
+
+    @Test
+    public void testPrimaryWhenReplicaFails() throws SQLException {
+        this.dataSource.check();
+        given(this.replica.getConnection()).willThrow(new SQLTransientConnectionException("timed out"));
+
+        assertThat(this.dataSource.getConnection()).isSameAs(this.primaryConnection);
+        assertThat(this.dataSource.isAvailable()).isFalse();
+
+        // skipped until the next check succeeds
+        assertThat(this.dataSource.getConnection()).isSameAs(this.primaryConnection);
+        verify(this.replica, times(2)).getConnection();
+    }
+
+    @Test
+    public void testReadOnlyConnectionsGoToReplica() throws SQLException {
+        this.dataSource.check();
+        var routing = new LazyConnectionDataSourceProxy(this.primary);
+        routing.setReadOnlyDataSource(this.dataSource);
+        routing.setDefaultAutoCommit(true);
+        routing.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+
+        try (var connection = routing.getConnection()) {
+            connection.setReadOnly(true);
+            connection.prepareStatement("select p from Post p");
+        }
+        verify(this.replicaConnection).prepareStatement(anyString());
+
+        try (var connection = routing.getConnection()) {
+            connection.prepareStatement("update Post p set p.title = 'title'");
+        }
+        verify(this.primaryConnection).prepareStatement(anyString());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.demo.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InvertedIndexTests {
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    public void setup() {
+        this.index = new InvertedIndex(1000);
+        this.index.put(1L, "Getting started with Spring Security", "Protect the api with JWT tokens");
+        this.index.put(2L, "Spring Data JPA", "Repositories, specifications and projections with Spring");
+        this.index.put(3L, "Cooking", "Nothing about Spring here, except spring onions");
+    }
+
+    @Test
+    public void testSearchMatchesAllTerms() {
+        assertThat(ids("spring jpa")).containsExactly(2L);
+        assertThat(ids("SPRING, security!")).containsExactly(1L);
+        assertThat(ids("spring kotlin")).isEmpty();
+        assertThat(ids("a")).isEmpty();
+    }
+
+    @Test
+    public void testSearchRanksTitleMatchesFirst() {
+        assertThat(ids("spring")).hasSize(3).last().isEqualTo(3L);
+        assertThat(ids("cooking spring")).containsExactly(3L);
+        assertThat(this.index.search("spring", 1)).hasSize(1);
+    }
+
+    @Test
+    public void testPutReplacesAndRemoveDeletes() {
+        this.index.put(2L, "Spring Data MongoDB", "Documents");
+        this.index.remove(1L);
+
+        assertThat(ids("jpa")).isEmpty();
+        assertThat(ids("mongodb")).containsExactly(2L);
+        assertThat(ids("security")).isEmpty();
+        assertThat(this.index.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRemovedPostsAreCompacted() {
+        for (long id = 10; id < 3000; id++) {
+            this.index.put(id, "bulk " + id, "bulk content");
+        }
+        for (long id = 10; id < 3000; id++) {
+            this.index.remove(id);
+        }
+
+        assertThat(ids("bulk")).isEmpty();
+        assertThat(ids("jpa")).containsExactly(2L);
+        assertThat(this.index.size()).isEqualTo(3);
+        // the terms of the posts deleted before the last compaction are gone
+        assertThat(this.index.terms()).isLessThan(1500);
+    }
+
+    @Test
+    public void testUpdatedPostsAreCompacted() {
+        this.index.put(4L, "Spring", "spring spring spring");
+        for (int i = 0; i < 5000; i++) {
+            this.index.put(5L, "Spring Boot", "revision " + i);
+        }
+
+        assertThat(this.index.size()).isEqualTo(5);
+        assertThat(this.index.documentNumbers()).isLessThan(2 * 1024 + 5);
+        // the document frequencies only count the last revision of post 5
+        assertThat(ids("spring")).hasSize(5).first().isEqualTo(4L);
+        assertThat(this.index.search("spring", 5)).allSatisfy(hit -> assertThat(hit.score()).isPositive());
+        assertThat(ids("revision")).containsExactly(5L);
+    }
+
+    @Test
+    public void testPostingsAreBounded() {
+        var index = new InvertedIndex(1000, 10);
+
+        assertThat(index.put(1L, "first post", "some words")).isTrue();
+        assertThat(index.put(2L, "second post", "other words")).isTrue();
+        // 4 more postings do not fit
+        assertThat(index.put(3L, "third post", "more words")).isFalse();
+        assertThat(index.postings()).isEqualTo(8);
+        assertThat(index.search("post", 10)).extracting(InvertedIndex.Hit::id).containsExactlyInAnyOrder(1L, 2L);
+
+        // an update which does not fit removes the previous version
+        assertThat(index.put(2L, "second post", "with many more other words here")).isFalse();
+        assertThat(index.search("post", 10)).extracting(InvertedIndex.Hit::id).containsExactly(1L);
+
+        // the postings of the deleted documents are reclaimed
+        assertThat(index.put(3L, "third post", "more words")).isTrue();
+        assertThat(index.postings()).isEqualTo(8);
+    }
+
+    @Test
+    public void testTermsPerPostAreLimited() {
+        var index = new InvertedIndex(3);
+        index.put(1L, "one two", "three four");
+
+        assertThat(index.search("three", 10)).hasSize(1);
+        assertThat(index.search("four", 10)).isEmpty();
+    }
+
+    private ArrayList<Long> ids(String query) {
+        var ids = new ArrayList<Long>();
+        this.index.search(query, 10).forEach(hit -> ids.add(hit.id()));
+        return ids;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.search;
+
+import com.example.demo.config.SearchProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PostSearchIndexTests {
+
+    @Test
+    public void testFullIndexIsReported() {
+        var properties = new SearchProperties();
+        properties.setMaxPostings(5);
+        var searchIndex = new PostSearchIndex(null, null, null, properties);
+        var registry = new SimpleMeterRegistry();
+        searchIndex.bindTo(registry);
+        try {
+            searchIndex.put(1L, "first post", "words");
+            assertThat(searchIndex.health().getDetails()).containsEntry("full", false);
+
+            searchIndex.put(2L, "second post", "other words");
+
+            assertThat(searchIndex.search("post", 10)).containsExactly(1L);
+            assertThat(searchIndex.health().getDetails())
+                    .containsEntry("full", true)
+                    .containsEntry("skippedPosts", 1L)
+                    .containsEntry("postings", 3L);
+            assertThat(registry.get("search.index.skipped").functionCounter().count()).isEqualTo(1);
+            assertThat(registry.get("search.index.postings").gauge().value()).isEqualTo(3);
+        } finally {
+            searchIndex.destroy();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+public class CachingJwtDecoderTests {
+
+    private final Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+    private JwtDecoder delegate;
+
+    private CachingJwtDecoder decoder;
+
+    @BeforeEach
+    public void setup() {
+        this.delegate = mock(JwtDecoder.class);
+        this.decoder = new CachingJwtDecoder(this.delegate, 100, Duration.ofMinutes(10), Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void testDecodeOnceForSameToken() {
+        given(this.delegate.decode("token")).willReturn(jwt("token", now.plusSeconds(3600)));
+
+        var first = this.decoder.decode("token");
+        var second = this.decoder.decode("token");
+
+        assertThat(second).isSameAs(first);
+        assertThat(this.decoder.stats().hitCount()).isEqualTo(1);
+        assertThat(this.decoder.stats().missCount()).isEqualTo(1);
+        verify(this.delegate, times(1)).decode("token");
+    }
+
+    @Test
+    public void testExpiredTokenIsNotCached() {
+        given(this.delegate.decode("token")).willReturn(jwt("token", now.minusSeconds(1)));
+
+        this.decoder.decode("token");
+        this.decoder.decode("token");
+
+        verify(this.delegate, times(2)).decode("token");
+    }
+
+    @Test
+    public void testFailureIsNotCached() {
+        given(this.delegate.decode(anyString())).willThrow(new BadJwtException("invalid"));
+
+        assertThatThrownBy(() -> this.decoder.decode("token")).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> this.decoder.decode("token")).isInstanceOf(BadJwtException.class);
+
+        assertThat(this.decoder.size()).isZero();
+        verify(this.delegate, times(2)).decode("token");
+    }
+
+    @Test
+    public void testConcurrentMissesDecodeOnce() throws Exception {
+        var decodings = new AtomicInteger();
+        var decoding = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        JwtDecoder slow = token -> {
+            decodings.incrementAndGet();
+            decoding.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return jwt(token, now.plusSeconds(3600));
+        };
+        var decoder = new CachingJwtDecoder(slow, 100, Duration.ofMinutes(10), Clock.fixed(now, ZoneOffset.UTC));
+
+        int threads = 8;
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var results = new ArrayList<Future<Jwt>>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> decoder.decode("token")));
+            }
+            assertThat(decoding.await(5, TimeUnit.SECONDS)).isTrue();
+            // the other threads reach the cache while the first one decodes
+            Thread.sleep(100);
+            release.countDown();
+
+            var first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (var result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(first);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(decodings).hasValue(1);
+        assertThat(decoder.size()).isEqualTo(1);
+    }
+
+    private Jwt jwt(String token, Instant expiresAt) {
+        return Jwt.withTokenValue(token)
+                .header("alg", "none")
+                .subject("user")
+                .issuedAt(expiresAt.minusSeconds(3600))
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
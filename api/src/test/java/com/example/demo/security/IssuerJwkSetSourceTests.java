@@ -0,0 +1,85 @@
+package com.example.demo.security;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.JWKSetCacheRefreshEvaluator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class IssuerJwkSetSourceTests {
+
+    private static final String ISSUER = "https://issuer.example.com/";
+
+    private RestTemplate rest;
+
+    private MockRestServiceServer server;
+
+    @BeforeEach
+    public void setup() {
+        this.rest = new RestTemplate();
+        this.server = MockRestServiceServer.bindTo(this.rest).build();
+    }
+
+    @Test
+    public void testDiscoverJwkSetUriOnce() throws Exception {
+        var jwks = new JWKSet(new RSAKeyGenerator(2048).keyID("k1").generate().toPublicJWK());
+        var source = new IssuerJwkSetSource(ISSUER, this.rest);
+
+        this.server.expect(ExpectedCount.once(), requestTo("https://issuer.example.com/.well-known/openid-configuration"))
+                .andRespond(withSuccess(metadata(ISSUER), MediaType.APPLICATION_JSON));
+        this.server.expect(ExpectedCount.twice(), requestTo("https://issuer.example.com/.well-known/jwks.json"))
+                .andRespond(withSuccess(jwks.toString(), MediaType.APPLICATION_JSON));
+
+        assertThat(source.getJWKSet(JWKSetCacheRefreshEvaluator.noRefresh(), 0, null).getKeyByKeyId("k1")).isNotNull();
+        assertThat(source.getJWKSet(JWKSetCacheRefreshEvaluator.noRefresh(), 0, null).getKeyByKeyId("k1")).isNotNull();
+
+        this.server.verify();
+    }
+
+    @Test
+    public void testIssuerMismatch() {
+        var source = new IssuerJwkSetSource(ISSUER, this.rest);
+
+        this.server.expect(requestTo("https://issuer.example.com/.well-known/openid-configuration"))
+                .andRespond(withSuccess(metadata("https://another.example.com/"), MediaType.APPLICATION_JSON));
+
+        assertThatThrownBy(() -> source.getJWKSet(JWKSetCacheRefreshEvaluator.noRefresh(), 0, null))
+                .isInstanceOf(KeySourceException.class);
+    }
+
+    @Test
+    public void testRetryDiscoveryAfterFailure() throws Exception {
+        var jwks = new JWKSet(new RSAKeyGenerator(2048).keyID("k1").generate().toPublicJWK());
+        var source = new IssuerJwkSetSource(ISSUER, this.rest);
+
+        this.server.expect(requestTo("https://issuer.example.com/.well-known/openid-configuration"))
+                .andRespond(withServerError());
+        this.server.expect(requestTo("https://issuer.example.com/.well-known/openid-configuration"))
+                .andRespond(withSuccess(metadata(ISSUER), MediaType.APPLICATION_JSON));
+        this.server.expect(requestTo("https://issuer.example.com/.well-known/jwks.json"))
+                .andRespond(withSuccess(jwks.toString(), MediaType.APPLICATION_JSON));
+
+        assertThatThrownBy(() -> source.getJWKSet(JWKSetCacheRefreshEvaluator.noRefresh(), 0, null))
+                .isInstanceOf(KeySourceException.class);
+        assertThat(source.getJWKSet(JWKSetCacheRefreshEvaluator.noRefresh(), 0, null).getKeys()).hasSize(1);
+
+        this.server.verify();
+    }
+
+    private String metadata(String issuer) {
+        return """
+                {"issuer": "%s", "jwks_uri": "https://issuer.example.com/.well-known/jwks.json"}
+                """.formatted(issuer);
+    }
+}
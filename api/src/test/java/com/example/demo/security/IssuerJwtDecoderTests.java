@@ -0,0 +1,93 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class IssuerJwtDecoderTests {
+
+    private static final String ISSUER = "https://issuer.example.com/";
+
+    private static final String TENANT = "https://tenant.example.com/";
+
+    private final Map<String, JwtDecoder> built = new ConcurrentHashMap<>();
+
+    private final List<String> closed = new ArrayList<>();
+
+    private IssuerJwtDecoder decoder;
+
+    @BeforeEach
+    public void setup() {
+        this.decoder = new IssuerJwtDecoder(List.of(ISSUER, TENANT), this::build, 1, Duration.ofHours(1));
+    }
+
+    @Test
+    public void testIssuerIsReadFromPayload() {
+        assertThat(IssuerJwtDecoder.issuer(token("{\"sub\":\"user\",\"aud\":[\"a\",\"b\"],\"ext\":{\"iss\":\"nested\"},\"iss\":\"" + ISSUER + "\"}")))
+                .isEqualTo(ISSUER);
+        assertThatThrownBy(() -> IssuerJwtDecoder.issuer(token("{\"sub\":\"user\"}"))).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> IssuerJwtDecoder.issuer(token("{\"iss\":1}"))).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> IssuerJwtDecoder.issuer("not a token")).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> IssuerJwtDecoder.issuer("header.%%%.signature")).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> IssuerJwtDecoder.issuer("header.payload.key.iv.tag")).isInstanceOf(BadJwtException.class);
+    }
+
+    @Test
+    public void testDecoderOfTheIssuerIsBuiltOnce() {
+        var token = token("{\"iss\":\"" + ISSUER + "\"}");
+
+        this.decoder.decode(token);
+        this.decoder.decode(token);
+
+        assertThat(this.built).containsOnlyKeys(ISSUER);
+    }
+
+    @Test
+    public void testUntrustedIssuerIsRejected() {
+        assertThatThrownBy(() -> this.decoder.decode(token("{\"iss\":\"https://untrusted.example.com/\"}")))
+                .isInstanceOf(BadJwtException.class);
+        assertThat(this.built).isEmpty();
+    }
+
+    @Test
+    public void testEvictedDecoderIsClosed() throws Exception {
+        this.decoder.decode(token("{\"iss\":\"" + ISSUER + "\"}"));
+        this.decoder.decode(token("{\"iss\":\"" + TENANT + "\"}"));
+        this.decoder.destroy();
+
+        assertThat(this.closed).containsExactlyInAnyOrder(ISSUER, TENANT);
+    }
+
+    private IssuerJwtDecoder.Decoder build(String issuer) {
+        var delegate = mock(JwtDecoder.class);
+        given(delegate.decode(anyString())).willReturn(mock(Jwt.class));
+        this.built.put(issuer, delegate);
+        return new IssuerJwtDecoder.Decoder(delegate, () -> {
+            synchronized (this.closed) {
+                this.closed.add(issuer);
+            }
+        });
+    }
+
+    private static String token(String payload) {
+        var encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+}
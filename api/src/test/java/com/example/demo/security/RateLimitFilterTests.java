@@ -0,0 +1,94 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitFilterTests {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    public void setup() {
+        // bursts of 2 requests, then 1 request per second, 1 write at a time
+        this.filter = new RateLimitFilter(2, 1, Duration.ofMinutes(1), 100, 1, new SimpleMeterRegistry(), this.now::get);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testAnonymousRequestsAreNotLimited() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertThat(send("GET", (req, res) -> {
+            }).getStatus()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    public void testSubjectIsLimited() throws Exception {
+        authenticate("user");
+
+        assertThat(send("GET").getStatus()).isEqualTo(200);
+        assertThat(send("GET").getStatus()).isEqualTo(200);
+        var rejected = send("GET");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+
+        authenticate("another");
+        assertThat(send("GET").getStatus()).isEqualTo(200);
+
+        authenticate("user");
+        this.now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(send("GET").getStatus()).isEqualTo(200);
+        assertThat(send("GET").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    public void testConcurrentWritesAreLimited() throws Exception {
+        authenticate("user");
+
+        var inner = new MockHttpServletResponse[1];
+        var outer = send("POST", (req, res) -> {
+            authenticate("another");
+            inner[0] = send("PUT");
+        });
+
+        assertThat(outer.getStatus()).isEqualTo(200);
+        assertThat(inner[0].getStatus()).isEqualTo(429);
+        assertThat(send("DELETE").getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse send(String method) throws ServletException, IOException {
+        return send(method, (req, res) -> {
+        });
+    }
+
+    private MockHttpServletResponse send(String method, FilterChain chain) throws ServletException, IOException {
+        var response = new MockHttpServletResponse();
+        this.filter.doFilter(new MockHttpServletRequest(method, "/posts"), response, chain);
+        return response;
+    }
+
+    private static void authenticate(String subject) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(subject, null, "SCOPE_write:posts"));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.demo.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+/**
+ * A local stand-in of an OIDC issuer, eg. an Auth0 tenant, for the tests running the real security filter chain.
+ * <p>
+ * It serves the issuer metadata and the JWK set on a random port and signs access tokens with configurable scopes
+ * and audience. Point {@code spring.security.oauth2.resourceserver.jwt.issuer-uri} to {@link #issuer()}.
+ */
+@Slf4j
+public class StubIssuer implements AutoCloseable {
+
+    private final HttpServer server;
+
+    private final RSAKey key;
+
+    private final String audience;
+
+    private StubIssuer(HttpServer server, RSAKey key, String audience) {
+        this.server = server;
+        this.key = key;
+        this.audience = audience;
+    }
+
+    public static StubIssuer start(String audience) {
+        try {
+            var key = new RSAKeyGenerator(2048).keyID(UUID.randomUUID().toString()).generate();
+            var server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            var issuer = new StubIssuer(server, key, audience);
+            server.createContext("/", issuer::handle);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.start();
+            log.info("stub issuer started at {}", issuer.issuer());
+            return issuer;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String issuer() {
+        return "http://localhost:" + this.server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * A token for the configured audience, valid for an hour.
+     */
+    public String token(String subject, String... scopes) {
+        return token(subject, this.audience, Duration.ofHours(1), scopes);
+    }
+
+    public String token(String subject, String audience, Duration expiresIn, String... scopes) {
+        var now = Instant.now();
+        var jwt = new SignedJWT(
+                new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(this.key.getKeyID()).type(JOSEObjectType.JWT).build(),
+                new JWTClaimsSet.Builder()
+                        .issuer(issuer())
+                        .subject(subject)
+                        .audience(audience)
+                        .issueTime(Date.from(now))
+                        .expirationTime(Date.from(now.plus(expiresIn)))
+                        .claim("scope", String.join(" ", scopes))
+                        .build()
+        );
+        try {
+            jwt.sign(new RSASSASigner(this.key));
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+        return jwt.serialize();
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        var path = exchange.getRequestURI().getPath();
+        String body;
+        if (path.endsWith("/.well-known/openid-configuration")) {
+            body = """
+                    {"issuer":"%s","jwks_uri":"%s.well-known/jwks.json"}""".formatted(issuer(), issuer());
+        } else if (path.endsWith("/.well-known/jwks.json")) {
+            body = new JWKSet(this.key.toPublicJWK()).toString();
+        } else {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (var out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
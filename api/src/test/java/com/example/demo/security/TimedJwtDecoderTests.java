@@ -0,0 +1,105 @@
+package com.example.demo.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TimedJwtDecoderTests {
+
+    private static final String ISSUER = "https://issuer.example.com/";
+
+    private static final String AUDIENCE = "https://hantsy.github.io/api";
+
+    private KeyPair keyPair;
+
+    private SimpleMeterRegistry registry;
+
+    private TimedJwtDecoder decoder;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        var generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        this.keyPair = generator.generateKeyPair();
+
+        var nimbusDecoder = NimbusJwtDecoder.withPublicKey((RSAPublicKey) this.keyPair.getPublic()).build();
+        nimbusDecoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefaultWithIssuer(ISSUER),
+                AudienceValidator.of(AUDIENCE)
+        ));
+        this.registry = new SimpleMeterRegistry();
+        this.decoder = new TimedJwtDecoder(nimbusDecoder, this.registry, ISSUER);
+    }
+
+    @Test
+    public void testSuccess() throws Exception {
+        this.decoder.decode(token(ISSUER, AUDIENCE, Instant.now().plusSeconds(60), this.keyPair.getPrivate()));
+
+        assertThat(count("success", "none")).isEqualTo(1);
+    }
+
+    @Test
+    public void testFailureReasons() throws Exception {
+        var otherKey = KeyPairGenerator.getInstance("RSA").generateKeyPair().getPrivate();
+        var expires = Instant.now().plusSeconds(60);
+
+        assertDecodeFails(token(ISSUER, "https://another.example.com/api", expires, this.keyPair.getPrivate()));
+        assertDecodeFails(token(ISSUER, AUDIENCE, Instant.now().minusSeconds(3600), this.keyPair.getPrivate()));
+        assertDecodeFails(token("https://another.example.com/", AUDIENCE, expires, this.keyPair.getPrivate()));
+        assertDecodeFails(token(ISSUER, AUDIENCE, expires, otherKey));
+        assertDecodeFails("not a token");
+
+        assertThat(count("failure", "audience")).isEqualTo(1);
+        assertThat(count("failure", "expired")).isEqualTo(1);
+        assertThat(count("failure", "issuer")).isEqualTo(1);
+        assertThat(count("failure", "rejected")).isEqualTo(1);
+        assertThat(count("failure", "malformed")).isEqualTo(1);
+    }
+
+    private void assertDecodeFails(String token) {
+        assertThatThrownBy(() -> this.decoder.decode(token)).isInstanceOf(JwtException.class);
+    }
+
+    private long count(String outcome, String reason) {
+        return this.registry.get(TimedJwtDecoder.METRIC_NAME)
+                .tag("issuer", ISSUER)
+                .tag("outcome", outcome)
+                .tag("reason", reason)
+                .timer()
+                .count();
+    }
+
+    private static String token(String issuer, String audience, Instant expiresAt, PrivateKey key) throws Exception {
+        var jwt = new SignedJWT(
+                new JWSHeader(JWSAlgorithm.RS256),
+                new JWTClaimsSet.Builder()
+                        .issuer(issuer)
+                        .audience(audience)
+                        .subject("user")
+                        .issueTime(Date.from(expiresAt.minusSeconds(7200)))
+                        .expirationTime(Date.from(expiresAt))
+                        .build()
+        );
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+}
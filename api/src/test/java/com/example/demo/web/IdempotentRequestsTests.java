@@ -0,0 +1,199 @@
+package com.example.demo.web;
+
+import com.example.demo.config.IdempotencyProperties;
+import com.example.demo.domain.IdempotencyKey;
+import com.example.demo.repository.IdempotencyKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest
+public class IdempotentRequestsTests {
+
+    @Autowired
+    IdempotencyKeyRepository keys;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @MockBean
+    JwtDecoder jwtDecoder;
+
+    private final AtomicInteger writes = new AtomicInteger();
+
+    private final AtomicInteger committed = new AtomicInteger();
+
+    private IdempotencyProperties properties;
+
+    @BeforeEach
+    public void setup() {
+        this.keys.deleteAll();
+        this.properties = new IdempotencyProperties();
+        this.properties.setTable(true);
+    }
+
+    @Test
+    public void testRetryOnAnotherNodeIsReplayedFromTable() {
+        var node = new IdempotentRequests(this.properties, this.keys, this.transactionManager);
+        var otherNode = new IdempotentRequests(this.properties, this.keys, this.transactionManager);
+
+        var first = create(node, "user", "key", "post", this::write);
+        var retry = create(otherNode, "user", "key", "post", this::write);
+
+        assertThat(first.statusCode().value()).isEqualTo(201);
+        assertThat(retry.statusCode().value()).isEqualTo(201);
+        assertThat(retry.headers().getLocation()).isEqualTo(first.headers().getLocation());
+        assertThat(retry.headers().getFirst(IdempotentRequests.REPLAYED)).isEqualTo("true");
+        assertThat(this.writes).hasValue(1);
+        assertThat(this.committed).hasValue(1);
+
+        assertThat(create(otherNode, "user", "key", "another post", this::write).statusCode().value()).isEqualTo(422);
+        // the keys of another subject
+        assertThat(create(otherNode, "someone", "key", "post", this::write).statusCode().value()).isEqualTo(201);
+        assertThat(this.writes).hasValue(2);
+    }
+
+    @Test
+    public void testKeyCommittedByAnotherNodeAfterLookupIsReplayed() {
+        // another node commits the key between the lookup and the insert of this one
+        var keys = mock(IdempotencyKeyRepository.class, delegatesTo(this.keys));
+        var committedByOtherNode = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (committedByOtherNode.compareAndSet(false, true)) {
+                var otherNode = new TransactionTemplate(this.transactionManager);
+                otherNode.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                otherNode.executeWithoutResult(status -> this.keys.save(IdempotencyKey.builder()
+                        .key("user:key")
+                        .fingerprint(IdempotentRequests.fingerprint("post"))
+                        .status(201)
+                        .location("/posts/42")
+                        .createdDate(LocalDateTime.now())
+                        .build()));
+            }
+            return this.keys.deleteExpired(invocation.getArgument(0), invocation.getArgument(1));
+        }).when(keys).deleteExpired(anyString(), any());
+        var node = new IdempotentRequests(this.properties, keys, this.transactionManager);
+
+        var retry = create(node, "user", "key", "post", this::write);
+
+        assertThat(retry.statusCode().value()).isEqualTo(201);
+        assertThat(retry.headers().getLocation()).isEqualTo(URI.create("/posts/42"));
+        assertThat(retry.headers().getFirst(IdempotentRequests.REPLAYED)).isEqualTo("true");
+        assertThat(this.writes).hasValue(0);
+        assertThat(this.keys.findById("user:key")).get().extracting(IdempotencyKey::getLocation).isEqualTo("/posts/42");
+    }
+
+    @Test
+    public void testConcurrentDuplicateWaitsForFirst() throws Exception {
+        var node = new IdempotentRequests(this.properties, this.keys, this.transactionManager);
+        var writing = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        var first = CompletableFuture.supplyAsync(() -> create(node, "user", "key", "post", () -> {
+            writing.countDown();
+            await(release);
+            return write();
+        }));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        var duplicate = CompletableFuture.supplyAsync(() -> create(node, "user", "key", "post", this::write));
+
+        Thread.sleep(100);
+        assertThat(duplicate).isNotDone();
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).statusCode().value()).isEqualTo(201);
+        var replayed = duplicate.get(5, TimeUnit.SECONDS);
+        assertThat(replayed.statusCode().value()).isEqualTo(201);
+        assertThat(replayed.headers().getFirst(IdempotentRequests.REPLAYED)).isEqualTo("true");
+        assertThat(this.writes).hasValue(1);
+    }
+
+    @Test
+    public void testFailedRequestIsNotRecorded() {
+        var node = new IdempotentRequests(this.properties, this.keys, this.transactionManager);
+
+        assertThatThrownBy(() -> create(node, "user", "key", "post", () -> {
+            throw new IllegalStateException("failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(this.keys.count()).isZero();
+        assertThat(create(node, "user", "key", "post", this::write).statusCode().value()).isEqualTo(201);
+        assertThat(this.writes).hasValue(1);
+    }
+
+    @Test
+    public void testDuplicateGetsConflictAfterWaitTimeout() throws Exception {
+        this.properties.setTable(false);
+        this.properties.setWaitTimeout(Duration.ofMillis(50));
+        var node = new IdempotentRequests(this.properties, this.keys, this.transactionManager);
+        var writing = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        var first = CompletableFuture.supplyAsync(() -> create(node, "user", "key", "post", () -> {
+            writing.countDown();
+            await(release);
+            return write();
+        }));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        var duplicate = create(node, "user", "key", "post", this::write);
+        assertThat(duplicate.statusCode().value()).isEqualTo(409);
+        assertThat(duplicate.headers().getFirst(HttpHeaders.RETRY_AFTER)).isNotNull();
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS).statusCode().value()).isEqualTo(201);
+    }
+
+    private ServerResponse create(IdempotentRequests node, String subject, String key, String body,
+                                  Supplier<Long> write) {
+        var servletRequest = new MockHttpServletRequest("POST", "/posts");
+        servletRequest.setUserPrincipal(() -> subject);
+        servletRequest.addHeader(IdempotentRequests.IDEMPOTENCY_KEY, key);
+        return node.create(ServerRequest.create(servletRequest, List.of()),
+                IdempotentRequests.fingerprint(body),
+                write,
+                id -> URI.create("/posts/" + id),
+                id -> this.committed.incrementAndGet());
+    }
+
+    private Long write() {
+        return (long) this.writes.incrementAndGet();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.demo.web;
+
+import com.example.demo.domain.Post;
+import com.example.demo.repository.PostRepository;
+import com.example.demo.repository.ReadYourWrites;
+import com.example.demo.search.PostSearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.function.EntityResponse;
+import org.springframework.web.servlet.function.ServerRequest;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest
+public class PostBatchHandlerTests {
+
+    @Autowired
+    PostRepository posts;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    Validator validator;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    PostSearchIndex searchIndex;
+
+    @Autowired
+    ReadYourWrites readYourWrites;
+
+    @Autowired
+    PostChangeFeed changes;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @MockBean
+    JwtDecoder jwtDecoder;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConcurrentUpdateOnlyFailsItsItem() throws Exception {
+        var updated = this.posts.save(Post.builder().title("updated").content("updated content").build());
+        var concurrent = this.posts.save(Post.builder().title("concurrent").content("concurrent content").build());
+
+        // a PUT of the concurrent post commits between the read and the flush of the chunk
+        var entityManager = mock(EntityManager.class, delegatesTo(this.entityManager));
+        var put = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (put.compareAndSet(false, true)) {
+                var other = new TransactionTemplate(this.transactionManager);
+                other.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                other.executeWithoutResult(status -> this.jdbcTemplate.update(
+                        "update posts set title = 'put', version = version + 1 where id = ?", concurrent.getId()));
+            }
+            this.entityManager.flush();
+            return null;
+        }).when(entityManager).flush();
+        var handler = new PostBatchHandler(entityManager, this.transactionManager, this.validator, this.cacheManager,
+                this.searchIndex, this.readYourWrites, this.changes);
+
+        var items = List.of(
+                Post.builder().title("created").content("created content").build(),
+                Post.builder().title("updated again").content("updated content").build(),
+                Post.builder().title("lost update").content("concurrent content").build()
+        );
+        items.get(1).setId(updated.getId());
+        items.get(2).setId(concurrent.getId());
+        var servletRequest = new MockHttpServletRequest("POST", "/posts/batch");
+        servletRequest.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        servletRequest.setContent(this.objectMapper.writeValueAsBytes(items));
+        var response = (EntityResponse<List<PostBatchHandler.BatchItemResult>>) handler.batch(
+                ServerRequest.create(servletRequest, List.of(new MappingJackson2HttpMessageConverter(this.objectMapper))));
+
+        assertThat(response.entity()).extracting(PostBatchHandler.BatchItemResult::status).containsExactly(201, 204, 409);
+        assertThat(this.posts.findById(updated.getId())).get().extracting(Post::getTitle).isEqualTo("updated again");
+        assertThat(this.posts.findById(concurrent.getId())).get().extracting(Post::getTitle).isEqualTo("put");
+        assertThat(this.posts.findById(response.entity().get(0).id())).get().extracting(Post::getTitle).isEqualTo("created");
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo.web;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SingleFlightTests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final SingleFlight<Long, String> flight = new SingleFlight<>();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentLoadsShareOneResult() throws Exception {
+        var loads = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        var leader = this.executor.submit(() -> this.flight.load(1L, () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "post 1";
+        }, TIMEOUT));
+        awaitInFlight();
+
+        List<Future<String>> waiters = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            waiters.add(this.executor.submit(() -> this.flight.load(1L, () -> {
+                loads.incrementAndGet();
+                return "another load";
+            }, TIMEOUT)));
+        }
+        awaitWaiters(5);
+        release.countDown();
+
+        assertThat(leader.get()).isEqualTo("post 1");
+        for (var waiter : waiters) {
+            assertThat(waiter.get()).isEqualTo("post 1");
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(this.flight.inFlight()).isZero();
+
+        // a completed load is not remembered
+        assertThat(this.flight.load(1L, () -> "reloaded", TIMEOUT)).isEqualTo("reloaded");
+    }
+
+    @Test
+    public void testFailureIsPropagatedToAllWaiters() throws Exception {
+        var release = new CountDownLatch(1);
+        var failure = new IllegalStateException("database is down");
+        var leader = this.executor.submit(() -> this.flight.load(1L, () -> {
+            await(release);
+            throw failure;
+        }, TIMEOUT));
+        awaitInFlight();
+        var waiter = this.executor.submit(() -> this.flight.load(1L, () -> "another load", TIMEOUT));
+        awaitWaiters(1);
+        release.countDown();
+
+        assertThatThrownBy(leader::get).isInstanceOf(ExecutionException.class).hasCause(failure);
+        assertThatThrownBy(waiter::get).isInstanceOf(ExecutionException.class).hasCause(failure);
+        assertThat(this.flight.inFlight()).isZero();
+    }
+
+    @Test
+    public void testWaiterTimesOut() throws Exception {
+        var release = new CountDownLatch(1);
+        var leader = this.executor.submit(() -> this.flight.load(1L, () -> {
+            await(release);
+            return "post 1";
+        }, TIMEOUT));
+        awaitInFlight();
+
+        assertThatThrownBy(() -> this.flight.load(1L, () -> "another load", Duration.ofMillis(50)))
+                .isInstanceOf(TimeoutException.class);
+
+        release.countDown();
+        assertThat(leader.get()).isEqualTo("post 1");
+    }
+
+    @Test
+    public void testForgetStartsANewLoad() throws Exception {
+        var release = new CountDownLatch(1);
+        var leader = this.executor.submit(() -> this.flight.load(1L, () -> {
+            await(release);
+            return "before the write";
+        }, TIMEOUT));
+        awaitInFlight();
+
+        this.flight.forget(1L);
+        assertThat(this.flight.load(1L, () -> "after the write", TIMEOUT)).isEqualTo("after the write");
+
+        release.countDown();
+        assertThat(leader.get()).isEqualTo("before the write");
+        assertThat(this.flight.inFlight()).isZero();
+    }
+
+    private void awaitInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (this.flight.inFlight() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(this.flight.inFlight()).isOne();
+    }
+
+    private void awaitWaiters(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (this.flight.waiters(1L) < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(this.flight.waiters(1L)).isEqualTo(count);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
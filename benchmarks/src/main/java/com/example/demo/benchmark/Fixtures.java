@@ -0,0 +1,65 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.domain.Post;
+import com.example.demo.domain.PostSummary;
+import com.example.demo.domain.Username;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Shared test data of the benchmarks.
+ */
+final class Fixtures {
+
+    static final String ISSUER = "https://benchmark.example.com/";
+
+    static final String AUDIENCE = "https://hantsy.github.io/api";
+
+    private Fixtures() {
+    }
+
+    /**
+     * An object mapper configured like the `spring.jackson` properties of the api application.yml.
+     */
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .serializationInclusion(JsonInclude.Include.NON_EMPTY)
+                .featuresToEnable(SerializationFeature.INDENT_OUTPUT, DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS,
+                        DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES,
+                        DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+    }
+
+    static Post post(long id) {
+        var post = Post.builder()
+                .title("Post " + id)
+                .content("Content of post " + id + ", " + "lorem ipsum dolor sit amet ".repeat(20))
+                .build();
+        var created = LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(id);
+        post.setId(id);
+        post.setVersion(0L);
+        post.setCreatedDate(created);
+        post.setLastModifiedDate(created);
+        post.setCreatedBy(new Username("user" + (id % 10)));
+        post.setLastModifiedBy(new Username("user" + (id % 10)));
+        return post;
+    }
+
+    static List<Post> posts(int size) {
+        return IntStream.range(0, size).mapToObj(i -> post(size - i)).toList();
+    }
+
+    static List<PostSummary> summaries(int size) {
+        return posts(size).stream()
+                .map(PostSummary::of)
+                .toList();
+    }
+}
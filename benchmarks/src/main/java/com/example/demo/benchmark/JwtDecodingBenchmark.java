@@ -0,0 +1,81 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.AudienceValidator;
+import com.example.demo.security.CachingJwtDecoder;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of an RS256 token signed by a locally generated key, with and without the verified token cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtDecodingBenchmark {
+
+    private JwtDecoder decoder;
+
+    private JwtDecoder cachingDecoder;
+
+    private String token;
+
+    @Setup
+    public void setup() throws Exception {
+        var generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        var keyPair = generator.generateKeyPair();
+
+        var nimbusDecoder = NimbusJwtDecoder.withPublicKey((RSAPublicKey) keyPair.getPublic()).build();
+        nimbusDecoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefaultWithIssuer(Fixtures.ISSUER),
+                AudienceValidator.of(Fixtures.AUDIENCE)
+        ));
+        this.decoder = nimbusDecoder;
+        this.cachingDecoder = new CachingJwtDecoder(nimbusDecoder, 10_000, Duration.ofMinutes(10));
+
+        var now = Instant.now();
+        var jwt = new SignedJWT(
+                new JWSHeader.Builder(JWSAlgorithm.RS256).type(JOSEObjectType.JWT).keyID("benchmark").build(),
+                new JWTClaimsSet.Builder()
+                        .issuer(Fixtures.ISSUER)
+                        .subject("benchmark")
+                        .audience(Fixtures.AUDIENCE)
+                        .issueTime(Date.from(now))
+                        .expirationTime(Date.from(now.plusSeconds(24 * 3600)))
+                        .claim("scope", "read:posts write:posts delete:posts")
+                        .build()
+        );
+        jwt.sign(new RSASSASigner(keyPair.getPrivate()));
+        this.token = jwt.serialize();
+    }
+
+    @Benchmark
+    public Jwt decode() {
+        return this.decoder.decode(this.token);
+    }
+
+    @Benchmark
+    public Jwt decodeCached() {
+        return this.cachingDecoder.decode(this.token);
+    }
+}
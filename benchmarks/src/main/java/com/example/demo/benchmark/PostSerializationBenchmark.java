@@ -0,0 +1,41 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.domain.PostSummary;
+import com.example.demo.web.CursorPage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of a page of the post list, with the object mapper settings of the api.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostSerializationBenchmark {
+
+    @Param({"1", "20", "100", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+
+    private CursorPage<PostSummary> page;
+
+    @Setup
+    public void setup() {
+        this.objectMapper = Fixtures.objectMapper();
+        List<PostSummary> summaries = Fixtures.summaries(this.size);
+        this.page = new CursorPage<>(summaries, "cursor");
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(this.page);
+    }
+}
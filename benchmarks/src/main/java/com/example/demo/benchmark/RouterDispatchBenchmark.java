@@ -0,0 +1,92 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.BlogProperties;
+import com.example.demo.config.ChangeFeedProperties;
+import com.example.demo.config.ReadCoalescingProperties;
+import com.example.demo.config.ReplicaProperties;
+import com.example.demo.config.SearchProperties;
+import com.example.demo.config.WebConfig;
+import com.example.demo.repository.PostRepository;
+import com.example.demo.repository.ReadYourWrites;
+import com.example.demo.search.PostSearchIndex;
+import com.example.demo.web.CommentHandler;
+import com.example.demo.web.PostBatchHandler;
+import com.example.demo.web.PostChangeFeed;
+import com.example.demo.web.PostHandler;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing, handling and writing of the post read endpoints, without a servlet container or a database. The
+ * repository is a stub returning fixed posts, so the numbers are the web layer overhead of a request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouterDispatchBenchmark {
+
+    private RouterFunction<ServerResponse> routes;
+
+    private List<HttpMessageConverter<?>> messageConverters;
+
+    private ServerResponse.Context context;
+
+    @Setup
+    public void setup() {
+        var post = Fixtures.post(1L);
+        var page = Fixtures.summaries(21);
+        var repository = (PostRepository) Proxy.newProxyInstance(
+                PostRepository.class.getClassLoader(),
+                new Class<?>[]{PostRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findCachedById" -> Optional.of(post);
+                    case "findSummaries" -> page;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+        var searchProperties = new SearchProperties();
+        var searchIndex = new PostSearchIndex(repository, null, null, searchProperties);
+        var readYourWrites = new ReadYourWrites(new ReplicaProperties(), null);
+        var changes = new PostChangeFeed(new ChangeFeedProperties(), Fixtures.objectMapper());
+        var postHandler = new PostHandler(repository, null, null, Fixtures.objectMapper(), null, null, searchIndex, searchProperties,
+                new ReadCoalescingProperties(), readYourWrites, changes, null);
+        var postBatchHandler = new PostBatchHandler(null, null, null, null, searchIndex, readYourWrites, changes);
+        this.routes = new WebConfig().routes(postHandler, postBatchHandler, changes, new CommentHandler(null, null, null, null),
+                new BlogProperties());
+
+        this.messageConverters = List.of(new MappingJackson2HttpMessageConverter(Fixtures.objectMapper()));
+        this.context = () -> this.messageConverters;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse getPost() throws Exception {
+        return dispatch(new MockHttpServletRequest("GET", "/posts/1"));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse getPosts() throws Exception {
+        return dispatch(new MockHttpServletRequest("GET", "/posts"));
+    }
+
+    private MockHttpServletResponse dispatch(MockHttpServletRequest servletRequest) throws Exception {
+        var response = new MockHttpServletResponse();
+        var request = ServerRequest.create(servletRequest, this.messageConverters);
+        var handler = this.routes.route(request).orElseThrow();
+        handler.handle(request).writeTo(servletRequest, response, this.context);
+        return response;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.search.InvertedIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries of the in-memory post index, one common and one rare term and a query matching nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"10000"})
+    public int posts;
+
+    private InvertedIndex index;
+
+    @Setup
+    public void setup() {
+        this.index = new InvertedIndex(10_000);
+        for (var post : Fixtures.posts(this.posts)) {
+            this.index.put(post.getId(), post.getTitle(), post.getContent());
+        }
+    }
+
+    @Benchmark
+    public List<InvertedIndex.Hit> commonTerm() {
+        return this.index.search("lorem ipsum", 20);
+    }
+
+    @Benchmark
+    public List<InvertedIndex.Hit> rareTerm() {
+        return this.index.search("post 4242", 20);
+    }
+
+    @Benchmark
+    public List<InvertedIndex.Hit> noMatch() {
+        return this.index.search("kotlin", 20);
+    }
+}
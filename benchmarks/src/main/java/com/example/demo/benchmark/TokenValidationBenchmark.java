@@ -0,0 +1,72 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.AudienceValidator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The audience validator alone and the validator chain of the api {@code JwtDecoder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenValidationBenchmark {
+
+    private OAuth2TokenValidator<Jwt> audienceValidator;
+
+    private OAuth2TokenValidator<Jwt> validatorChain;
+
+    private Jwt jwt;
+
+    private Jwt jwtWithOtherAudience;
+
+    @Setup
+    public void setup() {
+        this.audienceValidator = AudienceValidator.of(Fixtures.AUDIENCE);
+        this.validatorChain = new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefaultWithIssuer(Fixtures.ISSUER),
+                this.audienceValidator
+        );
+        this.jwt = jwt(Fixtures.AUDIENCE);
+        this.jwtWithOtherAudience = jwt("https://another.example.com/api");
+    }
+
+    @Benchmark
+    public OAuth2TokenValidatorResult audience() {
+        return this.audienceValidator.validate(this.jwt);
+    }
+
+    @Benchmark
+    public OAuth2TokenValidatorResult audienceRejected() {
+        return this.audienceValidator.validate(this.jwtWithOtherAudience);
+    }
+
+    @Benchmark
+    public OAuth2TokenValidatorResult chain() {
+        return this.validatorChain.validate(this.jwt);
+    }
+
+    private static Jwt jwt(String audience) {
+        var now = Instant.now();
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .issuer(Fixtures.ISSUER)
+                .subject("benchmark")
+                .audience(List.of(audience))
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(24 * 3600))
+                .claim("scope", "read:posts write:posts delete:posts")
+                .build();
+    }
+}
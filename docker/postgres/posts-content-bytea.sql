@@ -0,0 +1,14 @@
+-- One-off conversion of posts.content from text to the bytea of CompressedTextConverter, run once on a database
+-- created before the content was stored compressed, before starting the application:
+--   psql -h localhost -U user -d blogdb -f docker/postgres/posts-content-bytea.sql
+-- Every content becomes the PLAIN header byte, 0, followed by its UTF-8 bytes. The posts are deflated when they are
+-- written next. Running it again does nothing.
+do $$
+begin
+    if (select data_type from information_schema.columns
+        where table_schema = current_schema() and table_name = 'posts' and column_name = 'content') = 'text' then
+        alter table posts alter column content type bytea
+            using '\x00'::bytea || convert_to(content, 'UTF8');
+    end if;
+end
+$$;
@@ -0,0 +1,6 @@
+-- Trigram index of the lower case titles, serves the `q` filter of GET /posts, a `like '%...%'` no btree index can
+-- serve, see PostSpecifications#titleContains. Run once the schema exists:
+--   psql -h localhost -U user -d blogdb -f docker/postgres/posts-title-trgm.sql
+-- Filters shorter than 3 characters have no trigram and still scan the posts. Running it again does nothing.
+create extension if not exists pg_trgm;
+create index if not exists idx_posts_title_trgm on posts using gin (lower(title) gin_trgm_ops);
@@ -0,0 +1,3 @@
+#!/bin/sh
+# lets the replica of the docker-compose.yml stream the WAL of this database, runs once on a new volume
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
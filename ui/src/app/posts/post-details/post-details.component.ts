@@ -33,7 +33,7 @@ export class PostDetailsComponent implements OnInit, OnDestroy {
           if (this.postId) {
             return forkJoin([
               this.postService.getPost(this.postId),
-              //this.postService.getCommentsOfPost(this.postId),
+              this.postService.getCommentsOfPost(this.postId),
             ]);
           }
 
@@ -44,7 +44,7 @@ export class PostDetailsComponent implements OnInit, OnDestroy {
         (res: Array<any>) => {
           console.log(res);
           this.post = res[0];
-          //this.comments = res[1];
+          this.comments = res[1].content;
         },
         (err) => {
           console.error(err);
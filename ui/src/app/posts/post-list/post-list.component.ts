@@ -1,5 +1,5 @@
 import { Component, OnInit, OnDestroy } from '@angular/core';
-import { Post } from '../shared/post.model';
+import { Post, PostChange } from '../shared/post.model';
 import { Subscription } from 'rxjs';
 import { PostService } from '../shared/post.service';
 import { Router } from '@angular/router';
@@ -13,16 +13,38 @@ export class PostListComponent implements OnInit, OnDestroy {
   q = null;
   posts: Post[] = [];
   sub?: Subscription;
+  changesSub?: Subscription;
 
   constructor(private router: Router, private postService: PostService) {}
 
   search() {
     this.sub = this.postService.getPosts({ q: this.q }).subscribe(
-      (data) => (this.posts = data),
+      (data) => (this.posts = data.content),
       (err) => console.log(err)
     );
   }
 
+  applyChange(change: PostChange) {
+    switch (change.type) {
+      case 'created':
+        if (!this.q) {
+          this.posts = [change.post as Post, ...this.posts];
+        }
+        break;
+      case 'updated':
+        this.posts = this.posts.map((post) =>
+          post.id === change.post.id ? { ...post, ...change.post } : post
+        );
+        break;
+      case 'deleted':
+        this.posts = this.posts.filter((post) => post.id !== change.post.id);
+        break;
+      case 'reset':
+        this.search();
+        break;
+    }
+  }
+
   searchByTerm($event: any) {
     console.log('search by term:' + $event);
     this.updateTerm($event);
@@ -46,6 +68,10 @@ export class PostListComponent implements OnInit, OnDestroy {
   ngOnInit() {
     console.log('calling ngOnInit::PostListComponent');
     this.search();
+    this.changesSub = this.postService.getChanges().subscribe(
+      (change) => this.applyChange(change),
+      (err) => console.log(err)
+    );
   }
 
   ngOnDestroy() {
@@ -53,5 +79,8 @@ export class PostListComponent implements OnInit, OnDestroy {
     if (this.sub) {
       this.sub.unsubscribe();
     }
+    if (this.changesSub) {
+      this.changesSub.unsubscribe();
+    }
   }
 }
@@ -2,6 +2,6 @@ import { Username } from './username.model';
 export interface Comment {
   id?: string;
   content: string;
-  author?: Username;
+  createdBy?: Username;
   createdDate?: string;
 }
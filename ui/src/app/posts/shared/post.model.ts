@@ -6,4 +6,11 @@ export interface Post {
   content: string;
   createdBy?: Username;
   createdDate?: any;
+  commentCount?: number;
+}
+
+// an event of GET /posts/changes, `reset` asks to reload the list
+export interface PostChange {
+  type: 'created' | 'updated' | 'deleted' | 'reset';
+  post: Partial<Post>;
 }
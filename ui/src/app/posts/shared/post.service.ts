@@ -1,5 +1,5 @@
 import { Injectable, Inject } from '@angular/core';
-import { Post } from './post.model';
+import { Post, PostChange } from './post.model';
 import { Comment } from './comment.model';
 import { Observable } from 'rxjs';
 import { HttpClient } from '@angular/common/http';
@@ -23,6 +23,19 @@ export class PostService {
     return this.http.get(`${this.apiUrl}`, { params });
   }
 
+  // the posts created, updated and deleted from now on, the browser reconnects and resumes on its own
+  getChanges(): Observable<PostChange> {
+    return new Observable<PostChange>((observer) => {
+      const source = new EventSource(`${this.apiUrl}/changes`);
+      ['created', 'updated', 'deleted', 'reset'].forEach((type) =>
+        source.addEventListener(type, (event: Event) =>
+          observer.next({ type, post: JSON.parse((event as MessageEvent).data) } as PostChange)
+        )
+      );
+      return () => source.close();
+    });
+  }
+
   getPost(id: string): Observable<any> {
     return this.http.get(`${this.apiUrl}/${id}`);
   }